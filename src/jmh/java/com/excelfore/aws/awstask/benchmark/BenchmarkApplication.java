@@ -0,0 +1,47 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.AwsTaskApplication;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Boots the application without a web server, with every S3 client pointed at the in-process LocalS3Server
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... overrides) {
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        // Command-line arguments outrank application.properties, which would otherwise demand the AWS_* variables
+        List<String> args = new ArrayList<>(List.of(
+                "--aws.accessKey=benchmark",
+                "--aws.secretKey=benchmark",
+                "--aws.region=us-east-1",
+                "--aws.s3.bucket=benchmark-bucket",
+                // Signatures are not checked, so only client-side cost is measured
+                "--aws.s3.local.enabled=true",
+                "--aws.s3.local.verify-signatures=false",
+                "--aws.s3.presign.upload-expiry=1h",
+                "--aws.s3.presign.download-expiry=1h",
+                "--spring.devtools.livereload.enabled=false",
+                "--logging.level.root=WARN"));
+        for (String override : overrides) {
+            args.add("--" + override);
+        }
+
+        return new SpringApplicationBuilder(AwsTaskApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+}
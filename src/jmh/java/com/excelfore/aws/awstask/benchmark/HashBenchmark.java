@@ -0,0 +1,43 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// SHA-256 of the two upload sources: an in-memory array and a multipart upload
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+
+    @Param({"4096", "1048576", "67108864"})
+    private int size;
+
+    private byte[] content;
+    private MockMultipartFile multipartFile;
+
+    @Setup
+    public void setUp() {
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        multipartFile = new MockMultipartFile("file", "benchmark.bin", "application/octet-stream", content);
+    }
+
+    @Benchmark
+    public String hashBytes() {
+        return FileUtil.computeSHA256Hash(content);
+    }
+
+    @Benchmark
+    public String hashMultipartFile() {
+        return FileUtil.computeSHA256Hash(multipartFile);
+    }
+
+}
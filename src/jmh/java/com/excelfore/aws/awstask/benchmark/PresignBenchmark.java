@@ -0,0 +1,48 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// URL signing with and without the presigned URL cache in front of it
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresignBenchmark {
+
+    private static final String KEY = "myBucket/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Param({"true", "false"})
+    private boolean presignCache;
+
+    private ConfigurableApplicationContext context;
+    private CommonAWSOp commonAWSOp;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("aws.s3.presign.cache.enabled=" + presignCache);
+        commonAWSOp = context.getBean(CommonAWSOp.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String presignUpload() {
+        return commonAWSOp.generatePresignedUrl(KEY, true);
+    }
+
+    @Benchmark
+    public String presignDownload() {
+        return commonAWSOp.generatePresignedUrl(KEY, false);
+    }
+
+}
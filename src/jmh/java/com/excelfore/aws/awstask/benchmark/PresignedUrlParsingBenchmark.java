@@ -0,0 +1,49 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The per-request string work in front of every upload and download
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresignedUrlParsingBenchmark {
+
+    private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String QUERY = "?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Date=20260101T000000Z"
+            + "&X-Amz-SignedHeaders=host&X-Amz-Expires=300"
+            + "&X-Amz-Credential=AKIAEXAMPLE%2F20260101%2Fus-east-1%2Fs3%2Faws4_request"
+            + "&X-Amz-Signature=" + SHA256;
+
+    @Param({"virtual-host", "path-style"})
+    private String addressing;
+
+    private String presignedUrl;
+    private String pathStyleBucket;
+
+    @Setup
+    public void setUp() {
+        presignedUrl = "virtual-host".equals(addressing)
+                ? "https://benchmark-bucket.s3.us-east-1.amazonaws.com/myBucket/" + SHA256 + QUERY
+                : "http://127.0.0.1:9000/benchmark-bucket/myBucket/" + SHA256 + QUERY;
+        pathStyleBucket = "virtual-host".equals(addressing) ? null : "benchmark-bucket";
+    }
+
+    @Benchmark
+    public Map<String, String> extractFolderShaKeyAndObjName() {
+        return FileUtil.extractFolderShaKeyAndObjName(presignedUrl, pathStyleBucket);
+    }
+
+    @Benchmark
+    public boolean isFileNameValid() {
+        return FileUtil.isFileNameValid("quarterly-report-2026.final.json");
+    }
+
+}
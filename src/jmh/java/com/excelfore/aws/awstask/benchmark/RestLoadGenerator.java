@@ -0,0 +1,314 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.AwsTaskApplication;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.util.FileUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the v2 REST endpoints with a fixed number of closed-loop clients (each sends its next request when the
+ * previous one completes) and records per-scenario latency with HdrHistogram. Scenarios: {@code presign}
+ * (presigned upload URL from a client-side digest), {@code upload} (presign, then the multipart upload) and
+ * {@code download} (presigned download of one seeded object). Every client sends its own {@code X-Client-Id},
+ * so the per-client limit does not turn the whole run into 429s; 429 and 503 answers are counted, not retried.
+ * <p>
+ * Without a target URL the application is booted in-process with the {@code local} profile, so the run needs
+ * no AWS account; the S3 stand-in's {@code -Daws.s3.local.latency=20ms}, {@code latency-jitter} and
+ * {@code throttle-rate} simulate a slow or throttling S3. Percentile distributions are written to
+ * {@code target/load-<scenario>.hgrm} for plotting.
+ *
+ * <pre>
+ * mvn -q -Pjmh test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.excelfore.aws.awstask.benchmark.RestLoadGenerator \
+ *     -Dexec.args="all 32 30 65536"
+ * </pre>
+ *
+ * Arguments: scenario (presign, upload, download or all; default all), concurrent clients (default 32),
+ * measured seconds per scenario (default 30, after a 5 second warmup), upload and download size in bytes
+ * (default 65536) and an optional base URL of a running instance, e.g. {@code http://localhost:8080}.
+ */
+public class RestLoadGenerator {
+
+    private static final String API = "/api/v2/s3_bucket";
+    private static final String FOLDER_NAME = "myBucket/";
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    static final List<String> SCENARIOS = List.of("presign", "upload", "download");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final AtomicLong uploads = new AtomicLong();
+    private final String baseUrl;
+    private final LocalS3Server localS3;
+    private final int size;
+
+    private RestLoadGenerator(String baseUrl, LocalS3Server localS3, int size) {
+        this.baseUrl = baseUrl;
+        this.localS3 = localS3;
+        this.size = size;
+    }
+
+    // A generator for an application booted by start()
+    static RestLoadGenerator inProcess(ConfigurableApplicationContext context, int size) {
+        return new RestLoadGenerator("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort(),
+                context.getBean(LocalS3Server.class), size);
+    }
+
+    interface Operation {
+        // Returns the status that decided the outcome: the first non-2xx one, or the last one
+        int call(String clientId) throws IOException, InterruptedException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "all";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 65536;
+        String target = args.length > 4 ? args[4] : null;
+
+        List<String> scenarios = "all".equals(scenario) ? SCENARIOS : List.of(scenario);
+        if (!SCENARIOS.containsAll(scenarios)) {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario + ", expected one of " + SCENARIOS + " or all");
+        }
+
+        ConfigurableApplicationContext context = target == null ? start() : null;
+        try {
+            RestLoadGenerator generator = context == null ? new RestLoadGenerator(target, null, size) : inProcess(context, size);
+
+            System.out.printf("Target: %s, clients: %d, measured: %ds per scenario, size: %d bytes%n%n",
+                    context == null ? target : generator.baseUrl + " (in-process, local S3 stand-in)", clients, seconds, size);
+            printHeader("scenario");
+
+            for (String name : scenarios) {
+                generator.run(name, generator.operation(name), clients, Duration.ofSeconds(seconds));
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    // Extra arguments are appended, so they override the defaults below
+    static ConfigurableApplicationContext start(String... overrides) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--aws.s3.presign.upload-expiry=1h",
+                "--aws.s3.presign.download-expiry=1h",
+                "--spring.devtools.livereload.enabled=false",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(overrides));
+
+        return new SpringApplicationBuilder(AwsTaskApplication.class)
+                .profiles("local")
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    static void printHeader(String label) {
+        System.out.printf("%-16s %10s %10s %9s %9s %9s %9s %9s  %s%n",
+                label, "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+    }
+
+    Operation operation(String scenario) throws IOException, InterruptedException {
+        return switch (scenario) {
+            case "presign" -> clientId -> {
+                byte[] digest = new byte[32];
+                ThreadLocalRandom.current().nextBytes(digest);
+                return presignUpload(clientId, HEX.formatHex(digest)).statusCode();
+            };
+            case "upload" -> this::upload;
+            default -> {
+                String downloadUrl = seedDownload();
+                yield clientId -> send(clientId, HttpRequest.newBuilder(uri(API + "/download-file-using-presigned-url?presignedUrl="
+                                + URLEncoder.encode(downloadUrl, StandardCharsets.UTF_8))).GET(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+            }
+        };
+    }
+
+    // The label names the output row and the target/load-<label>.hgrm file
+    void run(String label, Operation operation, int clients, Duration measured) throws Exception {
+
+        Recorder recorder = new Recorder(3);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long deadline = measureFrom + measured.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                String clientId = "load-" + label + "-" + i;
+                futures.add(executor.submit(() -> {
+                    long now = System.nanoTime();
+                    while (now < deadline) {
+                        int status;
+                        try {
+                            status = operation.call(clientId);
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        long end = System.nanoTime();
+                        // Requests that started in the warmup are not measured
+                        if (now >= measureFrom) {
+                            recorder.recordValue((end - now) / 1_000);
+                            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        }
+                        now = end;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        Map<String, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status < 0 ? "io-error" : status.toString(), count.sum()));
+
+        System.out.printf("%-16s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n", label,
+                histogram.getTotalCount(), histogram.getTotalCount() / (measured.toNanos() / 1e9),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()), statusCounts);
+
+        Path output = Path.of("target", "load-" + label + ".hgrm");
+        Files.createDirectories(output.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(output), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private int upload(String clientId) throws IOException, InterruptedException {
+        byte[] content = uniqueContent();
+        String sha256Hex = FileUtil.computeSHA256Hash(content);
+        HttpResponse<String> presigned = presignUpload(clientId, sha256Hex);
+        if (presigned.statusCode() != 200) {
+            return presigned.statusCode();
+        }
+
+        String presignedUrl = resultUrl(presigned);
+        HttpResponse<String> uploaded = uploadFile(clientId, content, presignedUrl);
+        // The in-process stand-in keeps objects on the heap; only the seeded download object needs to stay
+        if (localS3 != null && uploaded.statusCode() == 200) {
+            localS3.remove(objectName(sha256Hex));
+        }
+        return uploaded.statusCode();
+    }
+
+    private String seedDownload() throws IOException, InterruptedException {
+        byte[] content = uniqueContent();
+        String sha256Hex = FileUtil.computeSHA256Hash(content);
+        HttpResponse<String> presigned = presignUpload("load-seed", sha256Hex);
+        String presignedUrl = resultUrl(expectOk(presigned));
+        expectOk(uploadFile("load-seed", content, presignedUrl));
+
+        HttpResponse<String> download = send("load-seed", HttpRequest.newBuilder(uri(API + "/download-presigned-url?objectName="
+                + URLEncoder.encode(objectName(sha256Hex), StandardCharsets.UTF_8))).POST(HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofString());
+        return resultUrl(expectOk(download));
+    }
+
+    private HttpResponse<String> presignUpload(String clientId, String sha256Hex) throws IOException, InterruptedException {
+        return send(clientId, HttpRequest.newBuilder(uri(API + "/presigned-url"))
+                        .header("X-Content-SHA256", sha256Hex)
+                        .POST(HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> uploadFile(String clientId, byte[] content, String presignedUrl)
+            throws IOException, InterruptedException {
+
+        String boundary = "load-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 1024);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"presignedUrl\"\r\n\r\n"
+                + presignedUrl + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return send(clientId, HttpRequest.newBuilder(uri(API + "/upload-file-using-presigned-url"))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private <T> HttpResponse<T> send(String clientId, HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return http.send(request.header("X-Client-Id", clientId).timeout(Duration.ofSeconds(60)).build(), handler);
+    }
+
+    // Random bytes with a run-wide counter in front, so no upload is answered as a duplicate
+    private byte[] uniqueContent() {
+        byte[] content = new byte[Math.max(size, Long.BYTES)];
+        ThreadLocalRandom.current().nextBytes(content);
+        ByteBuffer.wrap(content).putLong(0, uploads.incrementAndGet());
+        return content;
+    }
+
+    private static HttpResponse<String> expectOk(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private static String resultUrl(HttpResponse<String> response) throws IOException {
+        return MAPPER.readTree(response.body()).path("result").path("url").asText();
+    }
+
+    // The service names every upload by its digest, whichever addressing style its URLs use
+    private static String objectName(String sha256Hex) {
+        return FOLDER_NAME + sha256Hex;
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares how the platform-thread mode (Tomcat's pool of {@code server.tomcat.threads.max} threads and a fixed
+ * transfer pool) and the virtual-thread mode scale with the number of concurrent clients. For each mode the
+ * application is booted in-process with the {@code local} profile and the S3 stand-in answers after
+ * {@code aws.s3.local.latency}, so every request blocks its thread on at least one simulated S3 round trip;
+ * the closed-loop clients and the HdrHistogram recording are those of {@link RestLoadGenerator}.
+ * <p>
+ * Admission control is switched off and the S3 connection pool is raised above the largest level, so neither
+ * caps concurrency before the thread model does. Run with {@code -Djdk.tracePinnedThreads=short} to list any
+ * carrier pinning seen in the virtual-thread run.
+ *
+ * <pre>
+ * mvn -q -Pjmh test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.excelfore.aws.awstask.benchmark.ThreadModeLoadBenchmark \
+ *     -Dexec.args="presign 50 15 50,200,800"
+ * </pre>
+ *
+ * Arguments: scenario (presign, upload or download; default presign), simulated S3 latency in ms (default 50),
+ * measured seconds per level (default 15, after a 5 second warmup), comma-separated concurrency levels
+ * (default 50,200,800) and upload and download size in bytes (default 65536).
+ */
+public class ThreadModeLoadBenchmark {
+
+    private static final List<String> MODES = List.of("platform", "virtual");
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "presign";
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        int[] levels = Arrays.stream((args.length > 3 ? args[3] : "50,200,800").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int size = args.length > 4 ? Integer.parseInt(args[4]) : 65536;
+        int maxLevel = Arrays.stream(levels).max().orElse(0);
+
+        if (!RestLoadGenerator.SCENARIOS.contains(scenario)) {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario + ", expected one of " + RestLoadGenerator.SCENARIOS);
+        }
+
+        System.out.printf("Scenario: %s, simulated S3 latency: %d ms, measured: %ds per level, processors: %d%n%n",
+                scenario, latencyMs, seconds, Runtime.getRuntime().availableProcessors());
+        RestLoadGenerator.printHeader("mode-clients");
+
+        for (String mode : MODES) {
+            ConfigurableApplicationContext context = RestLoadGenerator.start(
+                    "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                    "--aws.s3.transfer.executor=" + mode,
+                    "--aws.s3.local.latency=" + latencyMs + "ms",
+                    "--aws.s3.admission.enabled=false",
+                    "--aws.s3.http.max-connections=" + Math.max(100, maxLevel));
+            try {
+                RestLoadGenerator generator = RestLoadGenerator.inProcess(context, size);
+                RestLoadGenerator.Operation operation = generator.operation(scenario);
+                for (int clients : levels) {
+                    generator.run(mode + "-" + clients, operation, clients, Duration.ofSeconds(seconds));
+                }
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+}
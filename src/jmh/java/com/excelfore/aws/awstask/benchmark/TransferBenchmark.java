@@ -0,0 +1,94 @@
+package com.excelfore.aws.awstask.benchmark;
+
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectStream;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.service.S3ServiceV2;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end presign-and-upload and presigned download through {@link S3ServiceV2}, over real HTTP to an
+ * in-process S3 stand-in. Sizes stay under the multipart threshold; each upload is made unique so it is
+ * never answered as a duplicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferBenchmark {
+
+    @Param({"65536", "4194304"})
+    private int size;
+
+    private final AtomicLong uploads = new AtomicLong();
+
+    private LocalS3Server s3;
+    private ConfigurableApplicationContext context;
+    private S3ServiceV2 s3ServiceV2;
+    private String downloadUrl;
+
+    @State(Scope.Thread)
+    public static class UploadPayload {
+        private byte[] content;
+
+        @Setup
+        public void setUp(TransferBenchmark benchmark) {
+            content = new byte[benchmark.size];
+            ThreadLocalRandom.current().nextBytes(content);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        s3 = context.getBean(LocalS3Server.class);
+        s3ServiceV2 = context.getBean(S3ServiceV2.class);
+
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        String key = "myBucket/" + FileUtil.computeSHA256Hash(content);
+        s3.put(key, content);
+        downloadUrl = s3ServiceV2.getValidPresignedUrlForDownload(key).getUrl();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String upload(UploadPayload payload) {
+        ByteBuffer.wrap(payload.content).putLong(0, uploads.incrementAndGet());
+        MockMultipartFile file = new MockMultipartFile("file", "benchmark.bin", "application/octet-stream", payload.content);
+
+        String presignedUrl = s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl();
+        String key = s3ServiceV2.uploadFileWithPresign(file, presignedUrl);
+
+        // Only the latest copy is worth keeping in the stand-in's memory
+        s3.remove(key);
+        return key;
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        ObjectStream stream = s3ServiceV2.downloadFileWithPresign(downloadUrl, DownloadConditions.none());
+        try (InputStream body = stream.getBody()) {
+            return body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package com.excelfore.aws.awstask.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent set of the SHA-256 digests already stored under the content-addressed folder, so a duplicate
+ * upload is recognised right after hashing (or straight from a client-supplied digest) without a HEAD.
+ * <p>
+ * The set is an open-addressing hash table in a memory-mapped file: a small header followed by fixed
+ * slots of one state byte and the 32 digest bytes, probed linearly from the digest's leading bytes. The
+ * table doubles into a fresh file once it is three quarters full. Writes made through this service keep it
+ * current; objects removed from the bucket by other means stay in the index until the file is deleted.
+ */
+@Component
+@Slf4j
+public class ContentDigestIndex {
+
+    private static final int MAGIC = 0x44494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int DIGEST_BYTES = 32;
+    private static final int SLOT_BYTES = 1 + DIGEST_BYTES;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer table;
+    private int capacity;
+    private int used;
+    private int deleted;
+
+    @Value("${aws.s3.dedup-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.dedup-index.path:${java.io.tmpdir}/awstask-digests.idx}")
+    private Path path;
+
+    @Value("${aws.s3.dedup-index.initial-capacity:65536}")
+    private int initialCapacity;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (Files.size(createParentAndFile()) >= HEADER_BYTES && mapExisting()) {
+                log.info("Digest index loaded. Path: {}, Digests: {}, Capacity: {}", path, used, capacity);
+                return;
+            }
+            table = createTable(path, Math.max(16, initialCapacity));
+            log.info("Digest index created. Path: {}, Capacity: {}", path, capacity);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open digest index at " + path, e);
+        }
+    }
+
+    public boolean contains(String sha256Hex) {
+        if (!enabled) {
+            return false;
+        }
+
+        byte[] digest = parse(sha256Hex);
+        lock.readLock().lock();
+        try {
+            return digest != null && findSlot(digest) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void record(String sha256Hex) {
+        byte[] digest = enabled ? parse(sha256Hex) : null;
+        if (digest == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (findSlot(digest) >= 0) {
+                return;
+            }
+            if ((used + deleted + 1L) * 4 > capacity * 3L) {
+                grow();
+            }
+            if (insert(table, capacity, digest) == DELETED) {
+                deleted--;
+            }
+            used++;
+            writeCounts();
+
+        } catch (IOException e) {
+            log.warn("Digest index could not grow, digest not recorded: {}", e.getMessage());
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String sha256Hex) {
+        byte[] digest = enabled ? parse(sha256Hex) : null;
+        if (digest == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(digest);
+            if (slot >= 0) {
+                table.put(slotOffset(slot), DELETED);
+                used--;
+                deleted++;
+                writeCounts();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (table != null) {
+                table.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Path createParentAndFile() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.notExists(path)) {
+            Files.createFile(path);
+        }
+        return path;
+    }
+
+    private boolean mapExisting() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int storedCapacity = header.getInt(8);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || storedCapacity <= 0
+                    || storedCapacity > MAX_CAPACITY
+                    || channel.size() != HEADER_BYTES + (long) storedCapacity * SLOT_BYTES) {
+                log.warn("Digest index at {} is not readable, starting a new one", path);
+                return false;
+            }
+
+            table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            capacity = storedCapacity;
+        }
+
+        // Counts are rebuilt from the slots, so a crash between a slot write and the header write is harmless
+        used = 0;
+        deleted = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            byte state = table.get(slotOffset(slot));
+            if (state == USED) {
+                used++;
+            } else if (state == DELETED) {
+                deleted++;
+            }
+        }
+        writeCounts();
+        return true;
+    }
+
+    private MappedByteBuffer createTable(Path target, int slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slots * SLOT_BYTES);
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.putInt(8, slots);
+            mapped.putInt(12, 0);
+            capacity = slots;
+            used = 0;
+            deleted = 0;
+            return mapped;
+        }
+    }
+
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("digest index is at its maximum capacity of " + MAX_CAPACITY);
+        }
+
+        MappedByteBuffer previous = table;
+        int previousCapacity = capacity;
+        int liveDigests = used;
+
+        // Rebuilt beside the live file and swapped in, so a crash mid-resize leaves the old table intact
+        Path resized = path.resolveSibling(path.getFileName() + ".resize");
+        MappedByteBuffer next = createTable(resized, (int) Math.min(MAX_CAPACITY, previousCapacity * 2L));
+        byte[] digest = new byte[DIGEST_BYTES];
+        for (int slot = 0; slot < previousCapacity; slot++) {
+            if (previous.get(slotOffset(slot)) == USED) {
+                previous.get(slotOffset(slot) + 1, digest);
+                insert(next, capacity, digest);
+            }
+        }
+        next.putInt(12, liveDigests);
+        next.force();
+        Files.move(resized, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        table = next;
+        used = liveDigests;
+        log.info("Digest index resized. Digests: {}, Capacity: {} -> {}", used, previousCapacity, capacity);
+    }
+
+    private int findSlot(byte[] digest) {
+        byte[] candidate = new byte[DIGEST_BYTES];
+        int slot = home(digest, capacity);
+        for (int probes = 0; probes < capacity; probes++) {
+            byte state = table.get(slotOffset(slot));
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == USED) {
+                table.get(slotOffset(slot) + 1, candidate);
+                if (Arrays.equals(candidate, digest)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) % capacity;
+        }
+        return -1;
+    }
+
+    // Returns the state the slot had before, so the caller can account for a reused tombstone
+    private static byte insert(MappedByteBuffer target, int slots, byte[] digest) {
+        int slot = home(digest, slots);
+        byte state;
+        while ((state = target.get(slotOffset(slot))) == USED) {
+            slot = (slot + 1) % slots;
+        }
+        // The state byte goes last so the slot only counts once its digest is in place
+        target.put(slotOffset(slot) + 1, digest);
+        target.put(slotOffset(slot), USED);
+        return state;
+    }
+
+    private void writeCounts() {
+        table.putInt(12, used);
+    }
+
+    private static int home(byte[] digest, int slots) {
+        long prefix = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix = (prefix << 8) | (digest[i] & 0xFF);
+        }
+        return (int) Long.remainderUnsigned(prefix, slots);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static byte[] parse(String sha256Hex) {
+        if (sha256Hex == null || sha256Hex.length() != DIGEST_BYTES * 2) {
+            return null;
+        }
+        try {
+            return HexFormat.of().parseHex(sha256Hex);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,556 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.dto.ContentCacheStats;
+import com.excelfore.aws.awstask.exception.FileDownloadException;
+import com.excelfore.aws.awstask.util.ContentCoding;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * On-disk read-through cache of object bodies, one file per SHA-256 digest. Content-addressed objects never
+ * change, so an entry stays valid until it is evicted.
+ * <p>
+ * A miss copies the S3 body into a temp file on a fill thread, and every request for that digest, the first
+ * one included, reads the file behind the fill as it grows. So a miss streams from its first byte, concurrent
+ * misses share a single S3 fetch, and a client that goes away does not stop the fill. Readers see the end of
+ * the content only once it has been verified against its digest and published; a mismatch fails their last
+ * read instead.
+ * <p>
+ * Every reader pins its digest until it closes its stream, and eviction skips pinned digests. When the total
+ * size passes {@code max-size-mb}, unpinned least recently used files are deleted down to 90% of it. Files
+ * left in the directory are picked up again on restart.
+ */
+@Component
+@Slf4j
+public class ObjectContentCache {
+
+    private static final int FILL_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Fill> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+    private final AtomicLong sizeBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Fills are plain blocking I/O and may wait on the transfer executor's range fetches, so they do not run on it
+    private final ExecutorService fillExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("content-cache-fill-", 0).factory());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+
+    @Value("${aws.s3.content-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.content-cache.dir:${java.io.tmpdir}/awstask-content-cache}")
+    private Path directory;
+
+    @Value("${aws.s3.content-cache.max-size-mb:10240}")
+    private int maxSizeMb;
+
+    @Value("${aws.s3.content-cache.max-object-mb:1024}")
+    private int maxObjectMb;
+
+    @FunctionalInterface
+    public interface Source {
+        // Called on the requesting thread, so a refused GET fails that request before anything is sent
+        InputStream open() throws IOException;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (FileUtil.isSha256Hex(name)) {
+                        long size = Files.size(file);
+                        entries.put(name, new Entry(file, size, Files.getLastModifiedTime(file).toMillis()));
+                        sizeBytes.addAndGet(size);
+                    } else {
+                        // Left over from a fill that never completed
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            log.info("Content cache loaded. Dir: {}, Entries: {}, Size: {} bytes", directory, entries.size(), sizeBytes.get());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open content cache at " + directory, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        fillExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCacheable(long contentLength) {
+        return enabled && contentLength > 0 && contentLength <= FileUtil.mbToBytes(maxObjectMb);
+    }
+
+    // The returned stream pins the digest until it is closed
+    public InputStream open(String sha256Hex, String contentEncoding, Source source) {
+        while (true) {
+            InputStream cached = openCached(sha256Hex);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+
+            Fill fill = inFlight.get(sha256Hex);
+            if (fill == null) {
+                Fill mine = newFill(sha256Hex, contentEncoding);
+                fill = inFlight.putIfAbsent(sha256Hex, mine);
+                if (fill == null) {
+                    misses.increment();
+                    return start(mine, source);
+                }
+                mine.discard();
+            }
+
+            // Served by another request's fetch, so it saves S3 egress just like a hit
+            InputStream joined = fill.reader(true);
+            if (joined != null) {
+                log.debug("Joined in-flight content cache fill for digest: {}", sha256Hex);
+                hits.increment();
+                return joined;
+            }
+            // That fill was published between the two lookups, so the next pass finds the entry
+        }
+    }
+
+    public ContentCacheStats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return new ContentCacheStats(
+                entries.size(),
+                sizeBytes.get(),
+                hitCount,
+                missCount,
+                lookups == 0 ? 0.0 : (double) hitCount / lookups,
+                bytesServed.sum(),
+                evictions.sum(),
+                evictedBytes.sum()
+        );
+    }
+
+    private InputStream openCached(String sha256Hex) {
+        if (!entries.containsKey(sha256Hex)) {
+            return null;
+        }
+
+        // Looked up again once pinned: eviction only removes entries that are not pinned
+        pin(sha256Hex);
+        Entry cached = entries.get(sha256Hex);
+        if (cached == null) {
+            unpin(sha256Hex);
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(cached.file, StandardOpenOption.READ);
+            cached.lastAccess = System.currentTimeMillis();
+            return new CachedFileInputStream(sha256Hex, channel);
+
+        } catch (NoSuchFileException e) {
+            // Deleted from outside the cache
+            if (entries.remove(sha256Hex, cached)) {
+                sizeBytes.addAndGet(-cached.size);
+            }
+            unpin(sha256Hex);
+            return null;
+
+        } catch (IOException e) {
+            unpin(sha256Hex);
+            throw new FileDownloadException("Failed to open cached content: " + e.getMessage());
+        }
+    }
+
+    private Fill newFill(String sha256Hex, String contentEncoding) {
+        Path temp = directory.resolve(sha256Hex + "." + UUID.randomUUID() + ".tmp");
+        try {
+            // Created up front, so a joining reader can open it before the first byte is written
+            Files.createFile(temp);
+            return new Fill(sha256Hex, contentEncoding, temp);
+        } catch (IOException e) {
+            throw new FileDownloadException("Failed to create content cache file: " + e.getMessage());
+        }
+    }
+
+    private InputStream start(Fill fill, Source source) {
+        InputStream body;
+        try {
+            body = source.open();
+        } catch (IOException | RuntimeException e) {
+            fill.fail(e);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new FileDownloadException("Failed to fetch object for content cache: " + e.getMessage());
+        }
+
+        InputStream reader = fill.reader(false);
+        fillExecutor.execute(() -> fill.run(body));
+        return reader;
+    }
+
+    private static String decodedSha256(Path file, String contentEncoding) throws IOException {
+        MessageDigest digest = FileUtil.newSha256Digest();
+        try (InputStream inputStream = new DigestInputStream(ContentCoding.decode(Files.newInputStream(file), contentEncoding), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return FileUtil.toHex(digest.digest());
+    }
+
+    private void pin(String sha256Hex) {
+        pins.merge(sha256Hex, 1, Integer::sum);
+    }
+
+    private void unpin(String sha256Hex) {
+        pins.computeIfPresent(sha256Hex, (digest, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void evictIfFull() {
+        long maxBytes = FileUtil.mbToBytes(maxSizeMb);
+        if (sizeBytes.get() <= maxBytes || !evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            long target = maxBytes * 9 / 10;
+            List<Map.Entry<String, Entry>> byAge = entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                    .toList();
+
+            for (Map.Entry<String, Entry> oldest : byAge) {
+                if (sizeBytes.get() <= target) {
+                    break;
+                }
+                // Decided inside the pin's compute, so a reader cannot pin the digest between the check and the delete
+                pins.compute(oldest.getKey(), (digest, count) -> {
+                    if (count == null && entries.remove(digest, oldest.getValue())) {
+                        delete(oldest.getValue().file);
+                        sizeBytes.addAndGet(-oldest.getValue().size);
+                        evictions.increment();
+                        evictedBytes.add(oldest.getValue().size);
+                    }
+                    return count;
+                });
+            }
+
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete content cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private volatile long lastAccess;
+
+        private Entry(Path file, long size, long lastAccess) {
+            this.file = file;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    // One S3 fetch into a temp file; readers follow the written length and are woken as it grows.
+    // A lock rather than the monitor, so a virtual thread waiting on the fill does not pin its carrier
+    private final class Fill {
+        private final String sha256Hex;
+        private final String contentEncoding;
+        private final Path temp;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition grown = lock.newCondition();
+
+        private long written;
+        private boolean published;
+        private Exception failure;
+
+        private Fill(String sha256Hex, String contentEncoding, Path temp) {
+            this.sha256Hex = sha256Hex;
+            this.contentEncoding = contentEncoding;
+            this.temp = temp;
+        }
+
+        // Null once published, as the entry serves from then on. The channel is opened under the lock,
+        // so publishing cannot rename the file away in between
+        InputStream reader(boolean countServed) {
+            lock.lock();
+            try {
+                if (failure != null) {
+                    throw new FileDownloadException("Failed to fetch object for content cache: " + failure.getMessage());
+                }
+                if (published) {
+                    return null;
+                }
+                pin(sha256Hex);
+                try {
+                    return new FillInputStream(this, FileChannel.open(temp, StandardOpenOption.READ), countServed);
+                } catch (IOException e) {
+                    unpin(sha256Hex);
+                    throw new FileDownloadException("Failed to open content cache file: " + e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void run(InputStream body) {
+            MessageDigest digest = FileUtil.newSha256Digest();
+            try (InputStream source = body;
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+
+                byte[] buffer = new byte[FILL_BUFFER_SIZE];
+                int read;
+                while ((read = source.read(buffer)) != -1) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                    digest.update(buffer, 0, read);
+                    advance(read);
+                }
+
+                // The key is the digest, so the fill is checked for free before it is published.
+                // Compressed objects are kept as stored and checked through a decoder
+                String actual = ContentCoding.isGzip(contentEncoding) ? decodedSha256(temp, contentEncoding) : FileUtil.toHex(digest.digest());
+                if (!actual.equalsIgnoreCase(sha256Hex)) {
+                    throw new FileDownloadException("Downloaded content does not match digest " + sha256Hex);
+                }
+                publish();
+
+            } catch (IOException | RuntimeException e) {
+                log.error("Content cache fill failed. Digest: {}, Message: {}", sha256Hex, e.getMessage());
+                fail(e);
+            }
+
+            evictIfFull();
+        }
+
+        private void advance(long bytes) {
+            lock.lock();
+            try {
+                written += bytes;
+                grown.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void publish() throws IOException {
+            lock.lock();
+            try {
+                Path target = directory.resolve(sha256Hex);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Entry previous = entries.put(sha256Hex, new Entry(target, written, System.currentTimeMillis()));
+                sizeBytes.addAndGet(previous == null ? written : written - previous.size);
+                published = true;
+                inFlight.remove(sha256Hex, this);
+                grown.signalAll();
+                log.debug("Content cache filled. Digest: {}, Size: {}", sha256Hex, written);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void fail(Exception e) {
+            lock.lock();
+            try {
+                failure = e;
+                inFlight.remove(sha256Hex, this);
+                grown.signalAll();
+                discard();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Readers that already hold the file keep reading it after the delete
+        void discard() {
+            delete(temp);
+        }
+
+        // The written length once it passes position, or position itself at the published end
+        private long awaitBeyond(long position) throws IOException {
+            lock.lock();
+            try {
+                while (written <= position && !published && failure == null) {
+                    try {
+                        grown.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the content cache fill");
+                    }
+                }
+                if (written <= position && failure != null) {
+                    throw new IOException("Content cache fill failed: " + failure.getMessage(), failure);
+                }
+                return written;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Follows a fill in progress through its own channel on the temp file
+    private final class FillInputStream extends InputStream {
+        private final Fill fill;
+        private final FileChannel channel;
+        private final boolean countServed;
+        private long position;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private FillInputStream(Fill fill, FileChannel channel, boolean countServed) {
+            this.fill = fill;
+            this.channel = channel;
+            this.countServed = countServed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            long available = fill.awaitBeyond(position);
+            if (available <= position) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, available - position)), position);
+            position += read;
+            if (countServed) {
+                bytesServed.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Also closed from the request's completion callback, possibly while a transfer is still running
+            if (closed.compareAndSet(false, true)) {
+                unpin(fill.sha256Hex);
+                channel.close();
+            }
+        }
+    }
+
+    // A published entry; transferTo hands the file to FileChannel.transferTo, which reads the page cache without a heap copy
+    private final class CachedFileInputStream extends InputStream {
+        private final String sha256Hex;
+        private final FileChannel channel;
+        private final InputStream delegate;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CachedFileInputStream(String sha256Hex, FileChannel channel) {
+            this.sha256Hex = sha256Hex;
+            this.channel = channel;
+            this.delegate = Channels.newInputStream(channel);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                bytesServed.add(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                bytesServed.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long transferTo(OutputStream outputStream) throws IOException {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long size = channel.size();
+            long start = channel.position();
+            long position = start;
+            while (position < size) {
+                long sent = channel.transferTo(position, size - position, target);
+                position += sent;
+                bytesServed.add(sent);
+            }
+            channel.position(position);
+            return position - start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                unpin(sha256Hex);
+                channel.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.excelfore.aws.awstask.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of every key in the bucket, held as two sorted {@code String[]} snapshots: the keys
+ * themselves for prefix ranges and the reversed keys for suffix ranges, both answered by binary search.
+ * <p>
+ * A full listing builds the snapshot. Each refresh after that only lists the keys sorting after the last
+ * indexed one, and merges them in together with the uploads and deletes made through this service, which
+ * are applied on top of the snapshot immediately. Keys other writers add or remove elsewhere in the key
+ * range show up at the next full listing, every {@code full-refresh-interval}. Past its TTL since the last
+ * refresh the index stops answering and callers go to S3; once the bucket outgrows {@code max-keys} it is
+ * switched off until restart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ObjectKeyIndex {
+
+    private final S3Client s3Client;
+
+    private final Map<String, Long> addedKeys = new ConcurrentHashMap<>();
+    private final Map<String, Long> removedKeys = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot;
+    private volatile boolean overCapacity;
+
+    @Value("${aws.s3.bucket}")
+    private String bucket;
+
+    @Value("${aws.s3.key-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.key-index.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${aws.s3.key-index.max-keys:1000000}")
+    private int maxKeys;
+
+    @Value("${aws.s3.key-index.full-refresh-interval:1h}")
+    private Duration fullRefreshInterval;
+
+    @Scheduled(initialDelayString = "${aws.s3.key-index.initial-delay-ms:0}",
+               fixedDelayString = "${aws.s3.key-index.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled || overCapacity) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            Snapshot current = snapshot;
+            if (current == null || startedAt - current.listedAt > fullRefreshInterval.toNanos()) {
+                fullRefresh(startedAt);
+            } else {
+                incrementalRefresh(current, startedAt);
+            }
+
+        } catch (RuntimeException e) {
+            log.error("Key index refresh failed. Message: {}", e.getMessage());
+        }
+    }
+
+    private void fullRefresh(long startedAt) {
+        List<String> keys = list(null, maxKeys);
+        if (keys == null) {
+            disable();
+            return;
+        }
+
+        String[] sorted = keys.toArray(String[]::new);
+        Arrays.sort(sorted);
+        snapshot = new Snapshot(sorted, reverseSorted(keys), startedAt, startedAt);
+
+        // Local mutations older than this listing are now part of it
+        addedKeys.values().removeIf(mutatedAt -> mutatedAt < startedAt);
+        removedKeys.values().removeIf(mutatedAt -> mutatedAt < startedAt);
+
+        log.debug("Key index rebuilt. Keys: {}, Took: {} ms", sorted.length, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void incrementalRefresh(Snapshot current, long startedAt) {
+        String lastKey = current.keys.length == 0 ? null : current.keys[current.keys.length - 1];
+        List<String> tail = list(lastKey, maxKeys - current.keys.length);
+        if (tail == null) {
+            disable();
+            return;
+        }
+
+        // Local mutations older than this refresh are folded into the snapshot; later ones stay on top of it
+        Map<String, Long> added = olderThan(addedKeys, startedAt);
+        Map<String, Long> removed = olderThan(removedKeys, startedAt);
+
+        TreeSet<String> additions = new TreeSet<>(tail);
+        additions.addAll(added.keySet());
+        additions.removeAll(removed.keySet());
+
+        if (additions.isEmpty() && removed.isEmpty()) {
+            snapshot = new Snapshot(current.keys, current.reversedKeys, current.listedAt, startedAt);
+        } else {
+            String[] keys = merge(current.keys, List.copyOf(additions), removed.keySet());
+            if (keys.length > maxKeys) {
+                disable();
+                return;
+            }
+            Set<String> reversedRemovals = new HashSet<>();
+            removed.keySet().forEach(key -> reversedRemovals.add(reverse(key)));
+            snapshot = new Snapshot(keys, merge(current.reversedKeys, reverseSorted(additions), reversedRemovals),
+                    current.listedAt, startedAt);
+        }
+
+        added.forEach(addedKeys::remove);
+        removed.forEach(removedKeys::remove);
+
+        log.debug("Key index refreshed. Keys: {}, Listed after last key: {}, Local changes: {}, Took: {} ms",
+                snapshot.keys.length, tail.size(), added.size() + removed.size(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    // Keys after startAfter (all of them for null), or null once there are more than limit
+    private List<String> list(String startAfter, int limit) {
+        List<String> keys = new ArrayList<>();
+        Iterator<S3Object> objects = s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                        .bucket(bucket)
+                        .startAfter(startAfter)
+                        .build())
+                .contents()
+                .iterator();
+
+        while (objects.hasNext()) {
+            if (keys.size() >= limit) {
+                return null;
+            }
+            keys.add(objects.next().key());
+        }
+        return keys;
+    }
+
+    // Relisting a bucket this large every interval costs more than the index saves, so it stays off
+    private void disable() {
+        log.warn("Key index disabled: bucket holds more than {} keys", maxKeys);
+        overCapacity = true;
+        snapshot = null;
+        addedKeys.clear();
+        removedKeys.clear();
+    }
+
+    public boolean containsKey(String key) {
+        Snapshot current = currentSnapshot();
+        if (current == null || removedKeys.containsKey(key)) {
+            return false;
+        }
+        return addedKeys.containsKey(key) || Arrays.binarySearch(current.keys, key) >= 0;
+    }
+
+    public Optional<List<String>> find(Optional<String> startWith, Optional<String> endWith) {
+        Snapshot current = currentSnapshot();
+        if (current == null) {
+            return Optional.empty();
+        }
+
+        TreeSet<String> result = new TreeSet<>();
+        if (startWith.isEmpty() && endWith.isPresent()) {
+            String reversedSuffix = reverse(endWith.get());
+            for (String reversedKey : range(current.reversedKeys, reversedSuffix)) {
+                result.add(reverse(reversedKey));
+            }
+        } else {
+            for (String key : range(current.keys, startWith.orElse(""))) {
+                if (endWith.map(key::endsWith).orElse(true)) {
+                    result.add(key);
+                }
+            }
+        }
+
+        addedKeys.keySet().stream()
+                .filter(key -> startWith.map(key::startsWith).orElse(true))
+                .filter(key -> endWith.map(key::endsWith).orElse(true))
+                .forEach(result::add);
+        result.removeAll(removedKeys.keySet());
+
+        return Optional.of(List.copyOf(result));
+    }
+
+    public void recordAdded(String key) {
+        if (enabled && !overCapacity) {
+            removedKeys.remove(key);
+            addedKeys.put(key, System.nanoTime());
+        }
+    }
+
+    public void recordRemoved(String key) {
+        if (enabled && !overCapacity) {
+            addedKeys.remove(key);
+            removedKeys.put(key, System.nanoTime());
+        }
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (!enabled || current == null || System.nanoTime() - current.builtAt > ttl.toNanos()) {
+            return null;
+        }
+        return current;
+    }
+
+    private static Map<String, Long> olderThan(Map<String, Long> mutations, long startedAt) {
+        Map<String, Long> older = new HashMap<>();
+        mutations.forEach((key, mutatedAt) -> {
+            if (mutatedAt < startedAt) {
+                older.put(key, mutatedAt);
+            }
+        });
+        return older;
+    }
+
+    // Both inputs are sorted; additions already present are kept once and removals are dropped
+    private static String[] merge(String[] sorted, List<String> additions, Set<String> removals) {
+        String[] merged = new String[sorted.length + additions.size()];
+        int size = 0;
+        int next = 0;
+        for (String key : sorted) {
+            if (removals.contains(key)) {
+                continue;
+            }
+            while (next < additions.size() && additions.get(next).compareTo(key) < 0) {
+                merged[size++] = additions.get(next++);
+            }
+            if (next < additions.size() && additions.get(next).equals(key)) {
+                next++;
+            }
+            merged[size++] = key;
+        }
+        while (next < additions.size()) {
+            merged[size++] = additions.get(next++);
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static List<String> reverseSorted(Collection<String> keys) {
+        return keys.stream().map(ObjectKeyIndex::reverse).sorted().toList();
+    }
+
+    private static List<String> range(String[] sorted, String prefix) {
+        int from = insertionPoint(sorted, prefix);
+        int to = insertionPoint(sorted, prefix + Character.MAX_VALUE);
+        return Arrays.asList(sorted).subList(from, to);
+    }
+
+    private static int insertionPoint(String[] sorted, String value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    private static final class Snapshot {
+        private final String[] keys;
+        private final String[] reversedKeys;
+        // When the last full listing started, and when the last refresh of any kind did
+        private final long listedAt;
+        private final long builtAt;
+
+        private Snapshot(String[] keys, String[] reversedKeys, long listedAt, long builtAt) {
+            this.keys = keys;
+            this.reversedKeys = reversedKeys;
+            this.listedAt = listedAt;
+            this.builtAt = builtAt;
+        }
+
+        private Snapshot(String[] keys, List<String> reversedKeys, long listedAt, long builtAt) {
+            this(keys, reversedKeys.toArray(String[]::new), listedAt, builtAt);
+        }
+    }
+
+}
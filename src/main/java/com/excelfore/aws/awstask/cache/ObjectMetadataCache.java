@@ -0,0 +1,154 @@
+package com.excelfore.aws.awstask.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of HeadObject results. An empty {@link Optional} is a cached "not found" and lives for the
+ * (short) negative TTL; found entries live for the positive TTL. Concurrent lookups of a key that is not
+ * cached share one in-flight HEAD instead of each sending their own.
+ */
+@Component
+@Slf4j
+public class ObjectMetadataCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<HeadObjectResponse>>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.head-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aws.s3.head-cache.positive-ttl:5m}")
+    private Duration positiveTtl;
+
+    @Value("${aws.s3.head-cache.negative-ttl:5s}")
+    private Duration negativeTtl;
+
+    @Value("${aws.s3.head-cache.max-entries:10000}")
+    private int maxEntries;
+
+    public Optional<HeadObjectResponse> get(String key, Supplier<Optional<HeadObjectResponse>> loader) {
+        Entry cached = freshEntry(key);
+        if (cached != null) {
+            return cached.metadata;
+        }
+
+        CompletableFuture<Optional<HeadObjectResponse>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<HeadObjectResponse>> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            log.debug("Coalesced HEAD for key: {}", key);
+            return join(existing);
+        }
+
+        try {
+            Optional<HeadObjectResponse> metadata = loader.get();
+            put(key, metadata);
+            mine.complete(metadata);
+            return metadata;
+
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public CompletableFuture<Optional<HeadObjectResponse>> getAsync(String key,
+                                                                   Supplier<CompletableFuture<Optional<HeadObjectResponse>>> loader) {
+        Entry cached = freshEntry(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.metadata);
+        }
+
+        CompletableFuture<Optional<HeadObjectResponse>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<HeadObjectResponse>> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            log.debug("Coalesced async HEAD for key: {}", key);
+            return existing;
+        }
+
+        loader.get().whenComplete((metadata, error) -> {
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+                return;
+            }
+            put(key, metadata);
+            mine.complete(metadata);
+        });
+        return mine;
+    }
+
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    private Entry freshEntry(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.nanoTime()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void put(String key, Optional<HeadObjectResponse> metadata) {
+        if (!enabled) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        Duration ttl = metadata.isPresent() ? positiveTtl : negativeTtl;
+        entries.put(key, new Entry(metadata, System.nanoTime() + ttl.toNanos()));
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+
+        // Still full: drop an arbitrary tenth rather than tracking recency on every read
+        Iterator<String> keys = entries.keySet().iterator();
+        int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static Optional<HeadObjectResponse> join(CompletableFuture<Optional<HeadObjectResponse>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry(Optional<HeadObjectResponse> metadata, long expiresAt) {
+    }
+
+}
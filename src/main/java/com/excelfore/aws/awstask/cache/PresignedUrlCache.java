@@ -0,0 +1,63 @@
+package com.excelfore.aws.awstask.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Reuses presigned URLs per (key, operation, content-disposition) while they still have at least
+ * {@code min-remaining} of their lifetime left, so hot keys are not re-signed on every request.
+ */
+@Component
+@Slf4j
+public class PresignedUrlCache {
+
+    private final Map<CacheKey, PresignedRequest> entries = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.presign.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aws.s3.presign.cache.min-remaining:2m}")
+    private Duration minRemaining;
+
+    @Value("${aws.s3.presign.cache.max-entries:10000}")
+    private int maxEntries;
+
+    public PresignedRequest get(String key, String operation, String contentDisposition, Supplier<PresignedRequest> signer) {
+        if (!enabled) {
+            return signer.get();
+        }
+
+        CacheKey cacheKey = new CacheKey(key, operation, contentDisposition);
+        Instant reusableUntil = Instant.now().plus(minRemaining);
+
+        PresignedRequest cached = entries.get(cacheKey);
+        if (cached != null && cached.expiration().isAfter(reusableUntil)) {
+            log.debug("Reusing presigned {} URL for key: {}", operation, key);
+            return cached;
+        }
+
+        PresignedRequest presigned = signer.get();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> !entry.expiration().isAfter(reusableUntil));
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(cacheKey, presigned);
+        return presigned;
+    }
+
+    private record CacheKey(String key, String operation, String contentDisposition) {
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.dto.UploadSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * File-backed map of resumable upload sessions: one small JSON file per session, replaced atomically on
+ * every change and read back into memory at startup, so an interrupted upload can resume after a restart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionStore {
+
+    private static final String SUFFIX = ".json";
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.resumable.dir:${java.io.tmpdir}/awstask-upload-sessions}")
+    private Path directory;
+
+    @PostConstruct
+    public void load() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(SUFFIX)) {
+                        UploadSession session = objectMapper.readValue(file.toFile(), UploadSession.class);
+                        sessions.put(session.getSessionId(), session);
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            log.info("Upload sessions loaded. Dir: {}, Sessions: {}", directory, sessions.size());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load upload sessions from " + directory, e);
+        }
+    }
+
+    public Optional<UploadSession> find(String sessionId) {
+        return Optional.ofNullable(sessions.get(sessionId));
+    }
+
+    public Collection<UploadSession> findAll() {
+        return List.copyOf(sessions.values());
+    }
+
+    public void save(UploadSession session) {
+        Path target = directory.resolve(session.getSessionId() + SUFFIX);
+        Path temp = directory.resolve(session.getSessionId() + ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), session);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sessions.put(session.getSessionId(), session);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to persist upload session " + session.getSessionId(), e);
+        }
+    }
+
+    public void delete(String sessionId) {
+        sessions.remove(sessionId);
+        try {
+            Files.deleteIfExists(directory.resolve(sessionId + SUFFIX));
+        } catch (IOException e) {
+            log.warn("Failed to delete upload session file {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+}
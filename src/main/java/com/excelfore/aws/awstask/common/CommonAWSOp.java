@@ -1,8 +1,23 @@
 package com.excelfore.aws.awstask.common;
 
+import com.excelfore.aws.awstask.cache.ObjectContentCache;
+import com.excelfore.aws.awstask.cache.ObjectKeyIndex;
+import com.excelfore.aws.awstask.cache.ObjectMetadataCache;
+import com.excelfore.aws.awstask.cache.PresignedUrlCache;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectStream;
 import com.excelfore.aws.awstask.exception.EmptyFileException;
+import com.excelfore.aws.awstask.exception.FileDownloadException;
+import com.excelfore.aws.awstask.exception.FileUploadException;
+import com.excelfore.aws.awstask.exception.HashMismatchException;
 import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.metrics.TransferMetrics;
+import com.excelfore.aws.awstask.util.ContentCoding;
+import com.excelfore.aws.awstask.util.FileUtil;
+import com.excelfore.aws.awstask.util.PresignedUrlSignature;
+import com.excelfore.aws.awstask.util.Sha256VerifyingInputStream;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -10,21 +25,41 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.beans.factory.annotation.Value;
 
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 @RequiredArgsConstructor
@@ -33,114 +68,259 @@ public class CommonAWSOp {
 
     private final S3Presigner s3Presigner;
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final HttpClient transferHttpClient;
+    private final ExecutorService transferExecutor;
+    private final ObjectKeyIndex objectKeyIndex;
+    private final ObjectMetadataCache objectMetadataCache;
+    private final PresignedUrlCache presignedUrlCache;
+    private final RangedDownloader rangedDownloader;
+    private final ObjectContentCache objectContentCache;
+    private final TransferMetrics transferMetrics;
+    private final ContentCompression contentCompression;
+    private final PresignedUrlSignature presignedUrlSignature;
+
+    // S3 rejects parts smaller than 5MB (except the last one)
+    private static final int MIN_PART_SIZE_MB = 5;
+
+    private static final String CHECKSUM_SHA256_HEADER = "x-amz-checksum-sha256";
+
+    // Content-addressed keys never change, so clients may keep them for a year without revalidating
+    private static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
 
     @Value("${aws.s3.bucket}")
     private String bucket;
 
-    public boolean doesObjectExists(String key){
+    @Value("${aws.s3.presign.upload-expiry:5m}")
+    private Duration uploadExpiry;
 
-        try{
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucket)
-                    .key(key)
-                    .build();
+    @Value("${aws.s3.presign.download-expiry:5m}")
+    private Duration downloadExpiry;
+
+    @Value("${aws.s3.transfer.http.request-timeout:5m}")
+    private Duration requestTimeout;
+
+    @Value("${aws.s3.multipart.part-size-mb:8}")
+    private int partSizeMb;
+
+    @Value("${aws.s3.multipart.parallelism:4}")
+    private int partParallelism;
+
+    @Value("${aws.s3.checksum.enabled:false}")
+    private boolean checksumEnabled;
+
+    // Set when the clients address the bucket path-style, so it leads the path of every URL they sign
+    private String pathStyleBucket;
+
+    @PostConstruct
+    public void detectAddressing() {
+        String path = s3Client.utilities().getUrl(request -> request.bucket(bucket).key("key")).getPath();
+        pathStyleBucket = path.startsWith("/" + bucket + "/") ? bucket : null;
+    }
+
+    public boolean isChecksumEnabled() {
+        return checksumEnabled;
+    }
+
+    public boolean doesObjectExists(String key){
 
-            s3Client.headObject(headObjectRequest);
-            // At this line status code - 200 Only
+        // Only positive answers come from the index; a key uploaded by another writer may not be in it yet
+        if (objectKeyIndex.containsKey(key)) {
             return true;
+        }
 
-        } catch (NoSuchKeyException e) {
-            int statusCode = e.statusCode();
-            String requestId = e.requestId();
-            log.debug("Error Failed To Get The Keys In Bucket. Class {} and ErrorMessage: {} StatusCode: {}, RequestId: {}", this.getClass().getSimpleName(), e.getMessage(), statusCode, requestId);
-            return false;
+        return headObject(key).isPresent();
 
-        } catch (S3Exception e) {
-            int statusCode = e.statusCode();
-            String requestId = e.requestId();
-            log.error("S3Exception occurred In {}. ErrorMessage: {}. StatusCode: {}, RequestId: {}", this.getClass().getSimpleName(), e.getMessage(),statusCode, requestId);
-            throw new RuntimeException("S3 error: " + e.awsErrorDetails().errorMessage());
+    }
+
+    public CompletableFuture<Boolean> doesObjectExistsAsync(String key) {
+
+        if (objectKeyIndex.containsKey(key)) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return headObjectAsync(key).thenApply(Optional::isPresent);
+    }
+
+    public Optional<HeadObjectResponse> headObject(String key) {
+
+        return objectMetadataCache.get(key, () -> {
+            try{
+                HeadObjectRequest headObjectRequest = headObjectRequest(key);
+
+                // At this line status code - 200 Only
+                return Optional.of(s3Client.headObject(headObjectRequest));
+
+            } catch (S3Exception e) {
+                return handleHeadFailure(e);
 
+            }
+        });
+    }
+
+    public CompletableFuture<Optional<HeadObjectResponse>> headObjectAsync(String key) {
+
+        HeadObjectRequest headObjectRequest = headObjectRequest(key);
+
+        return objectMetadataCache.getAsync(key, () -> s3AsyncClient.headObject(headObjectRequest)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return Optional.of(response);
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof S3Exception e) {
+                        return handleHeadFailure(e);
+                    }
+                    throw new CompletionException(cause);
+                }));
+    }
+
+    private HeadObjectRequest headObjectRequest(String key) {
+        return HeadObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .checksumMode(checksumEnabled ? ChecksumMode.ENABLED : null)
+                .build();
+    }
+
+    // Only a whole-object checksum can be checked against a streamed body; multipart objects report a composite
+    private Optional<String> fullObjectChecksum(Optional<HeadObjectResponse> head) {
+        return checksumEnabled
+                ? head.map(HeadObjectResponse::checksumSHA256).filter(checksum -> !checksum.contains("-"))
+                : Optional.empty();
+    }
+
+    // Called once our own upload of the key has landed, so stale "not found" answers are not served
+    public void recordUploaded(String key) {
+        objectMetadataCache.invalidate(key);
+        objectKeyIndex.recordAdded(key);
+    }
+
+    public void recordDeleted(String key) {
+        objectMetadataCache.invalidate(key);
+        objectKeyIndex.recordRemoved(key);
+    }
+
+    private Optional<HeadObjectResponse> handleHeadFailure(S3Exception e) {
+        int statusCode = e.statusCode();
+        String requestId = e.requestId();
+
+        if (e instanceof NoSuchKeyException) {
+            log.debug("Error Failed To Get The Keys In Bucket. Class {} and ErrorMessage: {} StatusCode: {}, RequestId: {}", this.getClass().getSimpleName(), e.getMessage(), statusCode, requestId);
+            return Optional.empty();
         }
 
+        log.error("S3Exception occurred In {}. ErrorMessage: {}. StatusCode: {}, RequestId: {}", this.getClass().getSimpleName(), e.getMessage(),statusCode, requestId);
+        throw new RuntimeException("S3 error: " + e.awsErrorDetails().errorMessage());
     }
 
     public String generatePresignedUrl(String key, boolean isUpload){
+        return isUpload ? generatePresignedUploadUrl(key, null) : generatePresignedDownloadUrl(key);
+    }
 
-        Duration expiration = Duration.ofMinutes(5);
+    // With checksums enabled the digest is signed into the URL, so S3 itself rejects a body that does not match
+    public String generatePresignedUploadUrl(String key, String sha256Hex){
+        return transferMetrics.observe("presign", () -> presignUpload(key, sha256Hex));
+    }
+
+    private String presignUpload(String key, String sha256Hex){
 
-        if(isUpload){
+        String checksum = checksumEnabled && sha256Hex != null ? FileUtil.sha256HexToBase64(sha256Hex) : null;
+
+        PresignedRequest presigned = presignedUrlCache.get(key, checksum == null ? "PUT" : "PUT+SHA256", null, () -> {
             PutObjectRequest putRequest = PutObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
+                    .checksumSHA256(checksum)
                     .build();
 
-            PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(
+            return s3Presigner.presignPutObject(
                     PutObjectPresignRequest.builder()
                             .putObjectRequest(putRequest)
-                            .signatureDuration(expiration)
+                            .signatureDuration(uploadExpiry)
                             .build()
             );
+        });
 
-            if (presigned == null || presigned.url() == null) {
-                throw new RuntimeException("Failed to generate presigned URL.");
-            }
-            if (presigned.expiration().isBefore(Instant.now())) {
-                throw new RuntimeException("Presigned URL is already expired.");
-            }
+        return validPresignedUrl(presigned);
+    }
 
-            return presigned.url().toString();
+    private String generatePresignedDownloadUrl(String key){
+        return transferMetrics.observe("presign", () -> presignDownload(key));
+    }
 
-        }
-        else{
+    private String presignDownload(String key){
 
+        String contentDisposition = "attachment; filename=\"" + key + "\"";
+
+        PresignedRequest presigned = presignedUrlCache.get(key, "GET", contentDisposition, () -> {
             GetObjectRequest getRequest = GetObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
-                    .responseContentDisposition("attachment; filename=\"" + key + "\"")
+                    .responseContentDisposition(contentDisposition)
                     .build();
 
-            PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(
+            return s3Presigner.presignGetObject(
                     GetObjectPresignRequest.builder()
                             .getObjectRequest(getRequest)
-                            .signatureDuration(expiration)
+                            .signatureDuration(downloadExpiry)
                             .build()
             );
+        });
 
-            if (presigned == null || presigned.url() == null) {
-                throw new RuntimeException("Failed to generate presigned URL.");
-            }
-            if (presigned.expiration().isBefore(Instant.now())) {
-                throw new RuntimeException("Presigned URL is already expired.");
-            }
-
-            return presigned.url().toString();
+        return validPresignedUrl(presigned);
+    }
 
+    private String validPresignedUrl(PresignedRequest presigned) {
+        if (presigned == null || presigned.url() == null) {
+            throw new RuntimeException("Failed to generate presigned URL.");
+        }
+        if (presigned.expiration().isBefore(Instant.now())) {
+            throw new RuntimeException("Presigned URL is already expired.");
         }
+
+        return presigned.url().toString();
     }
 
-    public void uploadFileWithPresignedUrl(MultipartFile file, String presignedUrl) {
+    public void uploadFileWithPresignedUrl(byte[] content, String contentType, String presignedUrl) {
 
-        // Have To Check The Logic That Presigned Url Expired Or Not
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
 
-        try (HttpClient client = HttpClient.newHttpClient()) {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(presignedUrl))
-                    .PUT(HttpRequest.BodyPublishers.ofByteArray(file.getBytes()))
-                    .header("Content-Type", file.getContentType())
-                    .build();
+        try {
+            HttpRequest request = buildUploadRequest(content, contentType, presignedUrl);
+            HttpResponse<String> response = transferHttpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            checkUploadResponse(response);
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            log.debug("Response status code: {}", response.statusCode());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Upload interrupted. Message: {}", e.getMessage());
+            throw new RuntimeException("Upload interrupted", e);
 
-            if (response.statusCode() == 403) {
-                log.warn("Presigned URL has expired.");
-                throw new PresignedUrlExpiredException("Presigned URL Get expired or URL get manipulated");
-            }
+        } catch (IOException e) {
+            log.error("I/O error during upload. Message: {}", e.getMessage());
+            throw new RuntimeException("Upload failed due to I/O error", e);
 
-            if (response.statusCode() == 200) {
-                return;
-            }
+        }
+    }
+
+    public CompletableFuture<Void> uploadFileWithPresignedUrlAsync(byte[] content, String contentType, String presignedUrl) {
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+        HttpRequest request = buildUploadRequest(content, contentType, presignedUrl);
+        return transferHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenAccept(this::checkUploadResponse);
+    }
+
+    // S3 hashes the body itself against the signed checksum, so the file is streamed without being read here first
+    public void uploadFileWithChecksum(MultipartFile file, String sha256Hex, String presignedUrl) {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        try {
+            HttpRequest request = buildChecksumUploadRequest(file, sha256Hex, presignedUrl);
+            HttpResponse<String> response = transferHttpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            checkUploadResponse(response);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -154,37 +334,339 @@ public class CommonAWSOp {
         }
     }
 
+    public CompletableFuture<Void> uploadFileWithChecksumAsync(MultipartFile file, String sha256Hex, String presignedUrl) {
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+        HttpRequest request = buildChecksumUploadRequest(file, sha256Hex, presignedUrl);
+        return transferHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenAccept(this::checkUploadResponse);
+    }
 
-    public byte[] downloadFileWithPresignedUrl(String presignedUrl) {
+    private HttpRequest buildChecksumUploadRequest(MultipartFile file, String sha256Hex, String presignedUrl) {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return file.getInputStream();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read uploaded file", e);
+                    }
+                }),
+                file.getSize());
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(presignedUrl))
+                .timeout(requestTimeout)
+                .PUT(body)
+                .header("Content-Type", file.getContentType())
+                .header(CHECKSUM_SHA256_HEADER, FileUtil.sha256HexToBase64(sha256Hex))
+                .build();
+    }
 
-        try (HttpClient client = HttpClient.newHttpClient()) {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(presignedUrl))
-                    .GET()
-                    .build();
+    private HttpRequest buildUploadRequest(byte[] content, String contentType, String presignedUrl) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(presignedUrl))
+                .timeout(requestTimeout)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                .header("Content-Type", contentType)
+                .build();
+    }
 
-            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    private void checkUploadResponse(HttpResponse<String> response) {
+        log.debug("Response status code: {}", response.statusCode());
 
-            log.debug("Response status code: {}", response.statusCode());
-            if (response.statusCode() == 403) {
-                log.warn("Presigned URL has expired.");
-                throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
-            }
+        if (response.statusCode() == 403) {
+            log.warn("Presigned URL has expired.");
+            throw new PresignedUrlExpiredException("Presigned URL Get expired or URL get manipulated");
+        }
 
-            if (response.statusCode() != 200) {
-                log.error("Failed to download file. Status: {}", response.statusCode());
-                throw new RuntimeException("Failed to download file, status code: " + response.statusCode());
+        if (response.statusCode() == 400 && isChecksumMismatch(response.body())) {
+            log.debug("S3 rejected the upload body against its checksum");
+            throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
+        }
+
+        // Anything else that is not 2xx (5xx, SlowDown, other 4xx) stored nothing, so it must not reach the indexes
+        if (response.statusCode() / 100 != 2) {
+            log.error("Presigned upload failed. StatusCode: {}, Body: {}", response.statusCode(), response.body());
+            throw new FileUploadException("Upload failed, status code: " + response.statusCode());
+        }
+    }
+
+    private static boolean isChecksumMismatch(String errorBody) {
+        return errorBody != null && (errorBody.contains("<Code>BadDigest</Code>") || errorBody.contains("<Code>InvalidDigest</Code>"));
+    }
 
+    public void uploadFileWithMultipart(MultipartFile file, String key, String expectedSha256) {
+        uploadMultipart(file, key, expectedSha256, null);
+    }
+
+    // Stored with Content-Encoding: gzip. A presigned PUT (and its signed checksum) describes the original bytes,
+    // so these go up with the service's own credentials; the digest is still taken over the original bytes
+    public void uploadFileCompressed(MultipartFile file, String key, String expectedSha256) {
+
+        if (file.getSize() > getPartSizeBytes()) {
+            uploadMultipart(file, key, expectedSha256, ContentCoding.GZIP);
+            return;
+        }
+
+        MessageDigest digest = FileUtil.newSha256Digest();
+        byte[] compressed;
+        try (InputStream inputStream = contentCompression.compress(new DigestInputStream(file.getInputStream(), digest))) {
+            compressed = inputStream.readAllBytes();
+
+        } catch (IOException e) {
+            log.error("I/O error while compressing file for upload. Message: {}", e.getMessage());
+            throw new RuntimeException("Upload failed due to I/O error", e);
+        }
+
+        checkDigest(digest, expectedSha256, key);
+
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(file.getContentType())
+                        .contentEncoding(ContentCoding.GZIP)
+                        .checksumAlgorithm(checksumEnabled ? ChecksumAlgorithm.SHA256 : null)
+                        .build(),
+                RequestBody.fromBytes(compressed));
+        log.debug("Uploaded compressed object. Key: {}, Size: {}, Stored: {}", key, file.getSize(), compressed.length);
+    }
+
+    private void uploadMultipart(MultipartFile file, String key, String expectedSha256, String contentEncoding) {
+
+        String uploadId = startMultipartUpload(key, file.getContentType(), contentEncoding);
+
+        try {
+            // The digest is fed by the same read that produces the parts, so the file is read only once
+            MessageDigest digest = FileUtil.newSha256Digest();
+            List<CompletedPart> parts = uploadParts(() -> {
+                InputStream original = new DigestInputStream(file.getInputStream(), digest);
+                return ContentCoding.isGzip(contentEncoding) ? contentCompression.compress(original) : original;
+            }, key, uploadId);
+
+            checkDigest(digest, expectedSha256, key);
+            completeMultipartUpload(key, uploadId, parts);
+
+        } catch (RuntimeException e) {
+            abortMultipartUpload(key, uploadId);
+            throw e;
+        }
+    }
+
+    private static void checkDigest(MessageDigest digest, String expectedSha256, String key) {
+        String actualSha256 = FileUtil.toHex(digest.digest());
+        if (!actualSha256.equalsIgnoreCase(expectedSha256)) {
+            log.debug("Hash mismatch after streaming upload. Key: {}, Actual: {}", key, actualSha256);
+            throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
+        }
+    }
+
+    public String startMultipartUpload(String key, String contentType) {
+        return startMultipartUpload(key, contentType, null);
+    }
+
+    private String startMultipartUpload(String key, String contentType, String contentEncoding) {
+        CreateMultipartUploadResponse created = s3Client.createMultipartUpload(
+                CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .contentEncoding(contentEncoding)
+                        .checksumAlgorithm(checksumEnabled ? ChecksumAlgorithm.SHA256 : null)
+                        .build()
+        );
+        log.debug("Started multipart upload. Key: {}, UploadId: {}", key, created.uploadId());
+        return created.uploadId();
+    }
+
+    public void completeMultipartUpload(String key, String uploadId, List<CompletedPart> parts) {
+        CompleteMultipartUploadResponse completed = s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+        log.debug("Completed multipart upload. Key: {}, Parts: {}, Checksum: {}", key, parts.size(), completed.checksumSHA256());
+    }
+
+    public int getPartSizeBytes() {
+        return (int) FileUtil.mbToBytes(Math.max(partSizeMb, MIN_PART_SIZE_MB));
+    }
+
+    // Multipart uploads under the prefix that were started before the cutoff and never completed or aborted
+    public List<MultipartUpload> listMultipartUploadsOlderThan(String prefix, Instant cutoff) {
+        return s3Client.listMultipartUploadsPaginator(ListMultipartUploadsRequest.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .build())
+                .uploads()
+                .stream()
+                .filter(upload -> upload.initiated() != null && upload.initiated().isBefore(cutoff))
+                .toList();
+    }
+
+    private interface PartSource {
+        InputStream open() throws IOException;
+    }
+
+    private List<CompletedPart> uploadParts(PartSource source, String key, String uploadId) {
+
+        int partSize = getPartSizeBytes();
+        // Every in-flight part holds one chunk, so this also caps the heap used by one upload
+        Semaphore inFlight = new Semaphore(partParallelism);
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        try (InputStream inputStream = source.open()) {
+
+            int partNumber = 1;
+            // Stop reading as soon as any part fails; the failure surfaces from future.get() below
+            while (!failed.get()) {
+                inFlight.acquire();
+                byte[] chunk = inputStream.readNBytes(partSize);
+                if (chunk.length == 0) {
+                    inFlight.release();
+                    break;
+                }
+
+                final int currentPart = partNumber++;
+                futures.add(transferExecutor.submit(() -> {
+                    try {
+                        return uploadPart(key, uploadId, currentPart, chunk);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (Future<CompletedPart> future : futures) {
+                parts.add(future.get());
             }
-                // Now safe to assume body contains file bytes
-                byte[] fileBytes = response.body();
+            return parts;
 
-            if (fileBytes == null || fileBytes.length == 0) {
-                log.warn("Downloaded file is empty.");
-                throw new EmptyFileException("Downloaded file is empty");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw new FileUploadException("Multipart upload failed: " + e.getCause().getMessage());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            log.error("Multipart upload interrupted. Message: {}", e.getMessage());
+            throw new RuntimeException("Upload interrupted", e);
+
+        } catch (IOException e) {
+            futures.forEach(future -> future.cancel(true));
+            log.error("I/O error during multipart upload. Message: {}", e.getMessage());
+            throw new RuntimeException("Upload failed due to I/O error", e);
+        }
+    }
+
+    public CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] chunk)
+            throws IOException, InterruptedException {
+
+        // Each part's digest is computed on its own worker, so checksumming scales with part parallelism;
+        // S3 combines them into the object's composite checksum (SHA-256 of the part digests, "-<parts>")
+        String checksum = checksumEnabled ? FileUtil.computeSHA256Base64(chunk, chunk.length) : null;
+
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .checksumSHA256(checksum)
+                .build();
+
+        String partUrl = s3Presigner.presignUploadPart(
+                UploadPartPresignRequest.builder()
+                        .uploadPartRequest(uploadPartRequest)
+                        .signatureDuration(uploadExpiry)
+                        .build()
+        ).url().toString();
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(partUrl))
+                .timeout(requestTimeout)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(chunk));
+        if (checksum != null) {
+            request.header(CHECKSUM_SHA256_HEADER, checksum);
+        }
 
-            return fileBytes;
+        HttpResponse<String> response = transferHttpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        log.debug("Part {} response status code: {}", partNumber, response.statusCode());
+
+        if (response.statusCode() == 403) {
+            log.warn("Presigned part URL has expired.");
+            throw new PresignedUrlExpiredException("Presigned URL Get expired or URL get manipulated");
+        }
+
+        if (response.statusCode() == 400 && isChecksumMismatch(response.body())) {
+            log.error("S3 rejected part {} against its checksum", partNumber);
+            throw new FileUploadException("Part " + partNumber + " was corrupted in transit");
+        }
+
+        if (response.statusCode() != 200) {
+            log.error("Failed to upload part {}. Status: {}", partNumber, response.statusCode());
+            throw new FileUploadException("Failed to upload part " + partNumber + ", status code: " + response.statusCode());
+        }
+
+        String eTag = response.headers().firstValue("ETag")
+                .orElseThrow(() -> new FileUploadException("Missing ETag for part " + partNumber));
+
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(eTag)
+                .checksumSHA256(checksum)
+                .build();
+    }
+
+    public void abortMultipartUpload(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.debug("Aborted multipart upload. Key: {}, UploadId: {}", key, uploadId);
+
+        } catch (S3Exception e) {
+            log.error("Failed to abort multipart upload. Key: {}, UploadId: {}, StatusCode: {}, RequestId: {}", key, uploadId, e.statusCode(), e.requestId());
+        }
+    }
+
+
+    // HEAD (usually cached) supplies the checksum to verify against and the size that decides on ranged GETs.
+    // A client Range or validator goes to S3 as a single GET, since the answer may be partial or empty
+    public ObjectStream streamFileWithPresignedUrl(String presignedUrl, String key, DownloadConditions conditions) {
+
+        if (!conditions.isEmpty()) {
+            return withCacheControl(key, streamFileWithPresignedUrl(presignedUrl, Optional.empty(), conditions));
+        }
+
+        Optional<HeadObjectResponse> head = usesHead(key) ? headObject(key) : Optional.empty();
+
+        if (head.isPresent() && isContentCacheable(key, head.get())) {
+            return withCacheControl(key, cachedObjectStream(presignedUrl, key, head.get()));
+        }
+        if (head.isPresent() && rangedDownloader.shouldSplit(head.get().contentLength())) {
+            return withCacheControl(key, rangedObjectStream(presignedUrl, key, head.get()));
+        }
+        return withCacheControl(key, streamFileWithPresignedUrl(presignedUrl, fullObjectChecksum(head), conditions));
+    }
+
+    // When S3 reported a whole-object checksum the body is verified as it streams, not after buffering it
+    private ObjectStream streamFileWithPresignedUrl(String presignedUrl, Optional<String> expectedChecksum,
+                                                    DownloadConditions conditions) {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        try {
+            HttpResponse<InputStream> response = transferHttpClient.send(buildDownloadRequest(presignedUrl, conditions), HttpResponse.BodyHandlers.ofInputStream());
+            return toObjectStream(response, expectedChecksum);
 
         }
         catch (InterruptedException e) {
@@ -199,4 +681,247 @@ public class CommonAWSOp {
         }
     }
 
+    public CompletableFuture<ObjectStream> streamFileWithPresignedUrlAsync(String presignedUrl, String key,
+                                                                           DownloadConditions conditions) {
+
+        if (!conditions.isEmpty()) {
+            return streamFileWithPresignedUrlAsync(presignedUrl, Optional.empty(), conditions)
+                    .thenApply(object -> withCacheControl(key, object));
+        }
+
+        CompletableFuture<Optional<HeadObjectResponse>> head = usesHead(key)
+                ? headObjectAsync(key)
+                : CompletableFuture.completedFuture(Optional.empty());
+
+        return head.thenCompose(response -> {
+            if (response.isPresent() && isContentCacheable(key, response.get())) {
+                // Opening a miss waits for S3's response headers, so it runs off the event loop
+                return CompletableFuture.supplyAsync(() -> cachedObjectStream(presignedUrl, key, response.get()), transferExecutor);
+            }
+            if (response.isPresent() && rangedDownloader.shouldSplit(response.get().contentLength())) {
+                // Range fetches are already asynchronous; only reading the stream blocks
+                return CompletableFuture.completedFuture(rangedObjectStream(presignedUrl, key, response.get()));
+            }
+            return streamFileWithPresignedUrlAsync(presignedUrl, fullObjectChecksum(response), conditions);
+        }).thenApply(object -> withCacheControl(key, object));
+    }
+
+    private static ObjectStream withCacheControl(String key, ObjectStream object) {
+        if (contentDigest(key) != null) {
+            object.setCacheControl(IMMUTABLE_CACHE_CONTROL);
+        }
+        return object;
+    }
+
+    // The digest a content-addressed key ends with, or null for any other key
+    private static String contentDigest(String key) {
+        String lastSegment = key.substring(key.lastIndexOf('/') + 1);
+        return FileUtil.isSha256Hex(lastSegment) ? lastSegment.toLowerCase() : null;
+    }
+
+    private boolean usesHead(String key) {
+        return checksumEnabled || rangedDownloader.isEnabled() || (objectContentCache.isEnabled() && contentDigest(key) != null);
+    }
+
+    private boolean isContentCacheable(String key, HeadObjectResponse head) {
+        return contentDigest(key) != null && objectContentCache.isCacheable(head.contentLength());
+    }
+
+    private ObjectStream cachedObjectStream(String presignedUrl, String key, HeadObjectResponse head) {
+
+        // A hit never reaches S3, and the HEAD used the service's credentials, so the URL is checked here
+        checkPresignedDownloadUrl(presignedUrl);
+
+        InputStream body = objectContentCache.open(contentDigest(key), head.contentEncoding(),
+                () -> openForCache(presignedUrl, head));
+
+        ObjectStream object = new ObjectStream(
+                body,
+                head.contentLength(),
+                head.eTag(),
+                head.contentType(),
+                "attachment; filename=\"" + key + "\""
+        );
+        object.setContentEncoding(head.contentEncoding());
+        if (head.lastModified() != null) {
+            object.setLastModified(HTTP_DATE_FORMAT.format(head.lastModified()));
+        }
+        return object;
+    }
+
+    private void checkPresignedDownloadUrl(String presignedUrl) {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        PresignedUrlSignature.Outcome outcome = presignedUrlSignature.check("GET", presignedUrl);
+        if (outcome != PresignedUrlSignature.Outcome.VALID) {
+            log.warn("Presigned download URL rejected before serving from the content cache: {}", outcome);
+            throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
+        }
+    }
+
+    public Map<String, String> extractFolderShaKeyAndObjName(String presignedUrl) {
+        return FileUtil.extractFolderShaKeyAndObjName(presignedUrl, pathStyleBucket);
+    }
+
+    // Multipart, compressed and resumable uploads write with the service's own credentials, so S3 never sees the
+    // URL; its signature is checked here as S3 would check a PUT to it, and a URL without one is rejected
+    public void checkPresignedUploadUrl(String presignedUrl, String sha256Hex) {
+
+        URI uri = URI.create(presignedUrl);
+        String checksum = FileUtil.isSha256Hex(sha256Hex) ? FileUtil.sha256HexToBase64(sha256Hex) : null;
+
+        PresignedUrlSignature.Outcome outcome = presignedUrlSignature.check("PUT", uri.getRawPath(),
+                PresignedUrlSignature.parseQuery(uri.getRawQuery()),
+                name -> switch (name) {
+                    case "host" -> List.of(uri.getRawAuthority());
+                    // Signed into the URL when checksums are enabled
+                    case CHECKSUM_SHA256_HEADER -> checksum == null ? List.of() : List.of(checksum);
+                    default -> List.of();
+                });
+        if (outcome != PresignedUrlSignature.Outcome.VALID) {
+            log.warn("Presigned upload URL rejected before a credentialed upload: {}", outcome);
+            throw new PresignedUrlExpiredException("Presigned URL Get expired or URL get manipulated");
+        }
+    }
+
+    // The body a cache fill copies; it has to arrive in order, since readers follow the fill as it is written
+    private InputStream openForCache(String presignedUrl, HeadObjectResponse head) throws IOException {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        if (rangedDownloader.shouldSplit(head.contentLength())) {
+            return rangedDownloader.openStream(presignedUrl, head.contentLength(), head.eTag());
+        }
+
+        try {
+            HttpResponse<InputStream> response = transferHttpClient.send(
+                    buildDownloadRequest(presignedUrl, DownloadConditions.none()),
+                    HttpResponse.BodyHandlers.ofInputStream());
+
+            if (response.statusCode() == 403) {
+                closeQuietly(response.body());
+                throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
+            }
+            if (response.statusCode() != 200) {
+                closeQuietly(response.body());
+                throw new FileDownloadException("Failed to download file, status code: " + response.statusCode());
+            }
+            return response.body();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+
+    private ObjectStream rangedObjectStream(String presignedUrl, String key, HeadObjectResponse head) {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        InputStream body = rangedDownloader.openStream(presignedUrl, head.contentLength(), head.eTag());
+        Optional<String> expectedChecksum = fullObjectChecksum(Optional.of(head));
+        if (expectedChecksum.isPresent()) {
+            body = new Sha256VerifyingInputStream(body, expectedChecksum.get());
+        }
+
+        ObjectStream object = new ObjectStream(
+                body,
+                head.contentLength(),
+                head.eTag(),
+                head.contentType(),
+                "attachment; filename=\"" + key + "\""
+        );
+        object.setContentEncoding(head.contentEncoding());
+        if (head.lastModified() != null) {
+            object.setLastModified(HTTP_DATE_FORMAT.format(head.lastModified()));
+        }
+        return object;
+    }
+
+    private CompletableFuture<ObjectStream> streamFileWithPresignedUrlAsync(String presignedUrl, Optional<String> expectedChecksum,
+                                                                            DownloadConditions conditions) {
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+        // Completes once the status line and headers arrive; the body is still read lazily by the caller
+        return transferHttpClient.sendAsync(buildDownloadRequest(presignedUrl, conditions), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> toObjectStream(response, expectedChecksum));
+    }
+
+    // These headers are not part of the signature, so S3 accepts them on a presigned GET
+    private HttpRequest buildDownloadRequest(String presignedUrl, DownloadConditions conditions) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(presignedUrl))
+                .timeout(requestTimeout)
+                .GET();
+
+        Optional.ofNullable(conditions.getRange()).ifPresent(range -> request.header("Range", range));
+        Optional.ofNullable(conditions.getIfNoneMatch()).ifPresent(eTag -> request.header("If-None-Match", eTag));
+        Optional.ofNullable(conditions.getIfModifiedSince()).ifPresent(date -> request.header("If-Modified-Since", date));
+
+        return request.build();
+    }
+
+    private ObjectStream toObjectStream(HttpResponse<InputStream> response, Optional<String> expectedChecksum) {
+
+        log.debug("Response status code: {}", response.statusCode());
+        if (response.statusCode() == 403) {
+            closeQuietly(response.body());
+            log.warn("Presigned URL has expired.");
+            throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
+        }
+
+        int statusCode = response.statusCode();
+        if (statusCode == 304 || statusCode == 416) {
+            // Nothing to stream: the client's copy is current, or its range lies outside the object
+            closeQuietly(response.body());
+            return passthroughObjectStream(response, InputStream.nullInputStream(), 0);
+        }
+
+        if (statusCode != 200 && statusCode != 206) {
+            closeQuietly(response.body());
+            log.error("Failed to download file. Status: {}", response.statusCode());
+            throw new RuntimeException("Failed to download file, status code: " + response.statusCode());
+        }
+
+        long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+        if (statusCode == 206) {
+            return passthroughObjectStream(response, response.body(), contentLength);
+        }
+
+        if (contentLength == 0) {
+            closeQuietly(response.body());
+            log.warn("Downloaded file is empty.");
+            throw new EmptyFileException("Downloaded file is empty");
+        }
+
+        InputStream body = expectedChecksum
+                .<InputStream>map(checksum -> new Sha256VerifyingInputStream(response.body(), checksum))
+                .orElse(response.body());
+
+        return passthroughObjectStream(response, body, contentLength);
+    }
+
+    private ObjectStream passthroughObjectStream(HttpResponse<InputStream> response, InputStream body, long contentLength) {
+        return new ObjectStream(
+                body,
+                contentLength,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Content-Type").orElse(null),
+                response.headers().firstValue("Content-Disposition").orElse(null),
+                response.statusCode(),
+                response.headers().firstValue("Content-Range").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                null,
+                response.headers().firstValue("Content-Encoding").orElse(null)
+        );
+    }
+
+    private void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.debug("Failed to close response body. Message: {}", e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,110 @@
+package com.excelfore.aws.awstask.common;
+
+import com.excelfore.aws.awstask.util.GzipCompressingInputStream;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Decides which uploads are stored gzip-compressed. Text-like content at or above {@code min-size-kb} is
+ * compressed: by its declared type, or by sniffing the first bytes when the type is missing or generic.
+ * Media and archives are already compressed and go up as they are. Keys and hash checks always use the
+ * original bytes, so compression never changes an object's name.
+ */
+@Component
+@Slf4j
+public class ContentCompression {
+
+    private static final int SNIFF_BYTES = 512;
+
+    @Value("${aws.s3.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.compression.min-size-kb:64}")
+    private int minSizeKb;
+
+    @Value("${aws.s3.compression.level:6}")
+    private int level;
+
+    @Value("${aws.s3.compression.content-types:text/*,application/json,application/x-ndjson,application/xml,application/javascript,application/yaml,application/x-yaml}")
+    private String contentTypes;
+
+    private List<MediaType> compressibleTypes;
+
+    @PostConstruct
+    public void init() {
+        compressibleTypes = MediaType.parseMediaTypes(contentTypes);
+    }
+
+    public boolean shouldCompress(MultipartFile file) {
+
+        if (!enabled || file.getSize() < minSizeKb * 1024L) {
+            return false;
+        }
+
+        MediaType type = parseContentType(file.getContentType());
+        if (type != null && !type.equals(MediaType.APPLICATION_OCTET_STREAM)) {
+            return isCompressible(type);
+        }
+
+        boolean text = looksLikeText(sample(file));
+        log.debug("Sniffed {} as {}", file.getOriginalFilename(), text ? "text" : "binary");
+        return text;
+    }
+
+    public InputStream compress(InputStream inputStream) {
+        return new GzipCompressingInputStream(inputStream, level);
+    }
+
+    private boolean isCompressible(MediaType type) {
+        String suffix = type.getSubtypeSuffix();
+        return "json".equals(suffix) || "xml".equals(suffix) || compressibleTypes.stream().anyMatch(t -> t.includes(type));
+    }
+
+    private static MediaType parseContentType(String contentType) {
+        try {
+            return contentType == null ? null : MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sample(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return inputStream.readNBytes(SNIFF_BYTES);
+
+        } catch (IOException e) {
+            log.debug("Failed to sniff uploaded file: {}", e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    // Any NUL, or more than 1% control characters, reads as binary; compressed formats rarely get past either
+    private static boolean looksLikeText(byte[] sample) {
+        if (sample.length == 0) {
+            return false;
+        }
+
+        int control = 0;
+        for (byte b : sample) {
+            if (b == 0) {
+                return false;
+            }
+            if (b > 0 && b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') {
+                control++;
+            }
+        }
+        return control * 100 <= sample.length;
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.excelfore.aws.awstask.common;
+
+import com.excelfore.aws.awstask.exception.FileDownloadException;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches one object as concurrent byte-range GETs over the same presigned URL, so a large download is not
+ * limited to a single TCP stream. Each range is retried on its own, and every range carries
+ * {@code If-Match} with the ETag from HEAD so an object replaced mid-download fails instead of mixing
+ * versions. At most {@code parallelism} ranges are held in memory at a time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RangedDownloader {
+
+    private final HttpClient transferHttpClient;
+    private final ExecutorService transferExecutor;
+
+    @Value("${aws.s3.download.ranged.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.download.ranged.threshold-mb:64}")
+    private int thresholdMb;
+
+    @Value("${aws.s3.download.ranged.range-size-mb:8}")
+    private int rangeSizeMb;
+
+    @Value("${aws.s3.download.ranged.parallelism:4}")
+    private int parallelism;
+
+    @Value("${aws.s3.download.ranged.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${aws.s3.transfer.http.request-timeout:5m}")
+    private Duration requestTimeout;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean shouldSplit(long contentLength) {
+        return enabled && contentLength > FileUtil.mbToBytes(thresholdMb);
+    }
+
+    // Ranges are fetched ahead of the reader and handed out strictly in order
+    public InputStream openStream(String presignedUrl, long contentLength, String eTag) {
+        log.debug("Ranged download started. Size: {}, RangeSize: {}MB, Parallelism: {}", contentLength, rangeSizeMb, parallelism);
+        return new OrderedRangeInputStream(presignedUrl, contentLength, eTag);
+    }
+
+    private byte[] fetchRange(String presignedUrl, long from, long to, String eTag) throws IOException, InterruptedException {
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(presignedUrl))
+                .timeout(requestTimeout)
+                .header("Range", "bytes=" + from + "-" + to)
+                .GET();
+        if (eTag != null) {
+            request.header("If-Match", eTag);
+        }
+
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                HttpResponse<byte[]> response = transferHttpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+                if (response.statusCode() == 403) {
+                    throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
+                }
+                if (response.statusCode() == 412) {
+                    throw new FileDownloadException("Object changed during ranged download");
+                }
+                if (response.statusCode() == 206 && response.body().length == to - from + 1) {
+                    return response.body();
+                }
+                lastFailure = new IOException("Range " + from + "-" + to + " failed. Status: " + response.statusCode()
+                        + ", Bytes: " + response.body().length);
+
+            } catch (IOException e) {
+                lastFailure = e;
+            }
+
+            log.debug("Retrying range {}-{} after attempt {}: {}", from, to, attempt, lastFailure.getMessage());
+            if (attempt < maxAttempts) {
+                Thread.sleep(100L << (attempt - 1));
+            }
+        }
+        throw lastFailure;
+    }
+
+    private final class OrderedRangeInputStream extends InputStream {
+
+        private final String presignedUrl;
+        private final long contentLength;
+        private final String eTag;
+        private final long rangeSize = FileUtil.mbToBytes(rangeSizeMb);
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+        private long nextRangeStart;
+        private byte[] current = new byte[0];
+        private int position;
+
+        OrderedRangeInputStream(String presignedUrl, long contentLength, String eTag) {
+            this.presignedUrl = presignedUrl;
+            this.contentLength = contentLength;
+            this.eTag = eTag;
+            for (int i = 0; i < parallelism; i++) {
+                scheduleNext();
+            }
+        }
+
+        private void scheduleNext() {
+            if (nextRangeStart >= contentLength) {
+                return;
+            }
+            final long from = nextRangeStart;
+            final long to = Math.min(from + rangeSize, contentLength) - 1;
+            nextRangeStart = to + 1;
+            pending.add(transferExecutor.submit(() -> fetchRange(presignedUrl, from, to, eTag)));
+        }
+
+        private boolean advance() throws IOException {
+            while (position >= current.length) {
+                Future<byte[]> next = pending.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.get();
+                    position = 0;
+                    scheduleNext();
+
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Ranged download interrupted", e);
+
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new IOException("Ranged download failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return advance() ? current[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+    }
+
+}
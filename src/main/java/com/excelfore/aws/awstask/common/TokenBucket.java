@@ -0,0 +1,48 @@
+package com.excelfore.aws.awstask.common;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reservation-style token bucket: a caller takes its bytes at once and sleeps off any deficit, so waiters are
+// served in arrival order. Bursts are capped at one second of the rate
+final class TokenBucket {
+
+    private final double bytesPerNano;
+    private final double capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    TokenBucket(long bytesPerSecond) {
+        this.bytesPerNano = bytesPerSecond / 1_000_000_000.0;
+        this.capacity = bytesPerSecond;
+        this.tokens = capacity;
+    }
+
+    void acquire(long bytes) throws InterruptedIOException {
+
+        long waitNanos;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * bytesPerNano);
+            refilledAt = now;
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens / bytesPerNano) : 0;
+        } finally {
+            lock.unlock();
+        }
+
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(waitNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for transfer bandwidth");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.excelfore.aws.awstask.common;
+
+import com.excelfore.aws.awstask.dto.ObjectStream;
+import com.excelfore.aws.awstask.exception.TransferRejectedException;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for transfers. Work runs in two lanes with separate concurrency limits: presign calls and
+ * transfers below {@code large.threshold-mb}, and everything larger, so multi-GB transfers can never hold the
+ * permits that small requests need. Waiting for a permit is bounded by {@code max-wait}; after that the request
+ * is rejected with a retry hint instead of queueing without limit. The large lane can also share a token bucket
+ * that caps its combined bandwidth, leaving headroom on the NIC for the small lane.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferAdmission {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aws.s3.admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.admission.small.max-concurrent:64}")
+    private int smallMaxConcurrent;
+
+    @Value("${aws.s3.admission.large.max-concurrent:8}")
+    private int largeMaxConcurrent;
+
+    @Value("${aws.s3.admission.large.threshold-mb:16}")
+    private int largeThresholdMb;
+
+    @Value("${aws.s3.admission.large.bandwidth-mb-per-second:0}")
+    private int largeBandwidthMbPerSecond;
+
+    @Value("${aws.s3.admission.max-wait:2s}")
+    private Duration maxWait;
+
+    @Value("${aws.s3.admission.retry-after:5s}")
+    private Duration retryAfter;
+
+    private Semaphore smallLane;
+    private Semaphore largeLane;
+    private TokenBucket largeBandwidth;
+
+    @PostConstruct
+    public void init() {
+        // Fair, so waiters are admitted in arrival order rather than by whoever retries at the right moment
+        smallLane = new Semaphore(smallMaxConcurrent, true);
+        largeLane = new Semaphore(largeMaxConcurrent, true);
+        largeBandwidth = largeBandwidthMbPerSecond > 0 ? new TokenBucket(FileUtil.mbToBytes(largeBandwidthMbPerSecond)) : null;
+
+        if (enabled) {
+            log.info("Transfer admission enabled. Small: {}, Large: {} (from {}MB), Bandwidth: {}MB/s, MaxWait: {}",
+                    smallMaxConcurrent, largeMaxConcurrent, largeThresholdMb,
+                    largeBandwidth == null ? "unlimited" : largeBandwidthMbPerSecond, maxWait);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Permit admitPresign() {
+        return admit(false);
+    }
+
+    public Permit admitTransfer(long sizeBytes) {
+        return admit(sizeBytes >= FileUtil.mbToBytes(largeThresholdMb));
+    }
+
+    private Permit admit(boolean large) {
+
+        if (!enabled) {
+            return Permit.UNLIMITED;
+        }
+
+        String lane = large ? "large" : "small";
+        Semaphore semaphore = large ? largeLane : smallLane;
+        try {
+            if (semaphore.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                return new Permit(semaphore, large ? largeBandwidth : null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        meterRegistry.counter("awstask.admission.rejected", "limit", lane).increment();
+        log.debug("Transfer rejected, {} lane full for {}", lane, maxWait);
+        throw new TransferRejectedException("Too many " + lane + " transfers in progress, retry later", retryAfter.toSeconds());
+    }
+
+    /**
+     * One admitted transfer. Closing it frees the lane permit; closing it again does nothing.
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private static final Permit UNLIMITED = new Permit(null, null);
+
+        private final Semaphore lane;
+        private final TokenBucket bandwidth;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore lane, TokenBucket bandwidth) {
+            this.lane = lane;
+            this.bandwidth = bandwidth;
+        }
+
+        public InputStream shape(InputStream inputStream) {
+            return bandwidth == null ? inputStream : new ShapedInputStream(inputStream, bandwidth);
+        }
+
+        public MultipartFile shape(MultipartFile file) {
+            return bandwidth == null ? file : new ShapedMultipartFile(file, bandwidth);
+        }
+
+        // For content that is already buffered: waits until the bucket covers it before it is sent
+        public void pace(long bytes) throws InterruptedIOException {
+            if (bandwidth != null) {
+                bandwidth.acquire(bytes);
+            }
+        }
+
+        // A streamed body keeps its permit until the response has been written and the stream closed
+        public ObjectStream holdUntilClosed(ObjectStream object) {
+            if (object.getBody() == null || object.getStatusCode() == 304 || object.getStatusCode() == 416) {
+                close();
+                return object;
+            }
+
+            object.setBody(new FilterInputStream(shape(object.getBody())) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Permit.this.close();
+                    }
+                }
+            });
+            return object;
+        }
+
+        @Override
+        public void close() {
+            if (lane != null && released.compareAndSet(false, true)) {
+                lane.release();
+            }
+        }
+    }
+
+    private static final class ShapedInputStream extends FilterInputStream {
+
+        private final TokenBucket bandwidth;
+
+        ShapedInputStream(InputStream in, TokenBucket bandwidth) {
+            super(in);
+            this.bandwidth = bandwidth;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bandwidth.acquire(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bandwidth.acquire(read);
+            }
+            return read;
+        }
+    }
+
+    // Every path that reads the upload (parts, streamed checksum PUT, buffered PUT) goes through getInputStream
+    private static final class ShapedMultipartFile implements MultipartFile {
+
+        private final MultipartFile delegate;
+        private final TokenBucket bandwidth;
+
+        ShapedMultipartFile(MultipartFile delegate, TokenBucket bandwidth) {
+            this.delegate = delegate;
+            this.bandwidth = bandwidth;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return delegate.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return delegate.getContentType();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public long getSize() {
+            return delegate.getSize();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream inputStream = getInputStream()) {
+                return inputStream.readAllBytes();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ShapedInputStream(delegate.getInputStream(), bandwidth);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (InputStream inputStream = getInputStream()) {
+                Files.copy(inputStream, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+}
@@ -1,43 +1,256 @@
 package com.excelfore.aws.awstask.config;
 
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.metrics.S3SdkMetricPublisher;
+import com.excelfore.aws.awstask.util.PresignedUrlSignature;
+
+import lombok.extern.slf4j.Slf4j;
+
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.ObjectProvider;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+
 @Configuration
+@Slf4j
 public class AwsS3Config {
 
     @Value("${aws.region}")
     private String region;
 
+    @Value("${aws.s3.http.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${aws.s3.http.connection-timeout:2s}")
+    private Duration connectionTimeout;
+
+    @Value("${aws.s3.http.connection-acquisition-timeout:5s}")
+    private Duration connectionAcquisitionTimeout;
+
+    @Value("${aws.s3.http.connection-max-idle-time:60s}")
+    private Duration connectionMaxIdleTime;
+
+    @Value("${aws.s3.http.connection-ttl:5m}")
+    private Duration connectionTimeToLive;
+
+    @Value("${aws.s3.http.socket-timeout:30s}")
+    private Duration socketTimeout;
+
+    @Value("${aws.s3.http.use-idle-connection-reaper:true}")
+    private boolean useIdleConnectionReaper;
+
+    @Value("${aws.s3.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    @Value("${aws.s3.http.tcp-keep-alive-interval:60s}")
+    private Duration tcpKeepAliveInterval;
+
+    @Value("${aws.s3.http.tcp-keep-alive-timeout:10s}")
+    private Duration tcpKeepAliveTimeout;
+
+    // Points every client at an S3-compatible endpoint instead of AWS; such endpoints usually need path-style URLs
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Bean
+    public SdkHttpClient s3HttpClient(@Value("${aws.s3.http.client:apache}") String clientType) {
+
+        log.debug("S3 HTTP transport: {}, MaxConnections: {}", clientType, maxConnections);
+
+        if ("crt".equalsIgnoreCase(clientType)) {
+            AwsCrtHttpClient.Builder builder = AwsCrtHttpClient.builder()
+                    .maxConcurrency(maxConnections)
+                    .connectionTimeout(connectionTimeout)
+                    .connectionMaxIdleTime(connectionMaxIdleTime);
+
+            if (tcpKeepAlive) {
+                builder.tcpKeepAliveConfiguration(keepAlive -> keepAlive
+                        .keepAliveInterval(tcpKeepAliveInterval)
+                        .keepAliveTimeout(tcpKeepAliveTimeout));
+            }
+            return builder.build();
+        }
+
+        if (!"apache".equalsIgnoreCase(clientType)) {
+            throw new IllegalArgumentException("Unsupported aws.s3.http.client: " + clientType + " (expected apache or crt)");
+        }
+
+        return ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .connectionTimeToLive(connectionTimeToLive)
+                .socketTimeout(socketTimeout)
+                .useIdleConnectionReaper(useIdleConnectionReaper)
+                .tcpKeepAlive(tcpKeepAlive)
+                .build();
+    }
+
+    @Bean
+    public SdkAsyncHttpClient s3AsyncHttpClient(@Value("${aws.s3.async.client:netty}") String clientType,
+                                                @Value("${aws.s3.async.max-concurrency:500}") int maxConcurrency) {
+
+        log.debug("S3 async HTTP transport: {}, MaxConcurrency: {}", clientType, maxConcurrency);
+
+        if ("crt".equalsIgnoreCase(clientType)) {
+            AwsCrtAsyncHttpClient.Builder builder = AwsCrtAsyncHttpClient.builder()
+                    .maxConcurrency(maxConcurrency)
+                    .connectionTimeout(connectionTimeout)
+                    .connectionMaxIdleTime(connectionMaxIdleTime);
+
+            if (tcpKeepAlive) {
+                builder.tcpKeepAliveConfiguration(keepAlive -> keepAlive
+                        .keepAliveInterval(tcpKeepAliveInterval)
+                        .keepAliveTimeout(tcpKeepAliveTimeout));
+            }
+            return builder.build();
+        }
+
+        if (!"netty".equalsIgnoreCase(clientType)) {
+            throw new IllegalArgumentException("Unsupported aws.s3.async.client: " + clientType + " (expected netty or crt)");
+        }
+
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .connectionTimeToLive(connectionTimeToLive)
+                .useIdleConnectionReaper(useIdleConnectionReaper)
+                .tcpKeepAlive(tcpKeepAlive)
+                .build();
+    }
+
+    @Bean
+    public ClientOverrideConfiguration s3ClientOverrideConfiguration(
+            @Value("${aws.s3.retry.mode:ADAPTIVE}") RetryMode retryMode,
+            @Value("${aws.s3.retry.num-retries:3}") int numRetries,
+            @Value("${aws.s3.api-call-timeout:30s}") Duration apiCallTimeout,
+            @Value("${aws.s3.api-call-attempt-timeout:10s}") Duration apiCallAttemptTimeout,
+            S3SdkMetricPublisher s3SdkMetricPublisher) {
+
+        return ClientOverrideConfiguration.builder()
+                .retryPolicy(RetryPolicy.forRetryMode(retryMode).toBuilder()
+                        .numRetries(numRetries)
+                        .build())
+                .apiCallTimeout(apiCallTimeout)
+                .apiCallAttemptTimeout(apiCallAttemptTimeout)
+                .addMetricPublisher(s3SdkMetricPublisher)
+                .build();
+    }
+
     @Bean
     public S3Client s3Client(@Value("${aws.accessKey}") String accessKey,
                              @Value("${aws.secretKey}") String secretKey,
-                             @Value("${aws.region}") String region) {
+                             @Value("${aws.region}") String region,
+                             SdkHttpClient s3HttpClient,
+                             ClientOverrideConfiguration s3ClientOverrideConfiguration,
+                             ObjectProvider<LocalS3Server> localS3Server) {
 
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
-        return S3Client.builder()
+        S3ClientBuilder builder = S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+                .httpClient(s3HttpClient)
+                .overrideConfiguration(s3ClientOverrideConfiguration)
+                .forcePathStyle(pathStyle(localS3Server));
+
+        URI endpointOverride = endpointOverride(localS3Server);
+        if (endpointOverride != null) {
+            builder.endpointOverride(endpointOverride);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(@Value("${aws.accessKey}") String accessKey,
+                                       @Value("${aws.secretKey}") String secretKey,
+                                       @Value("${aws.region}") String region,
+                                       SdkAsyncHttpClient s3AsyncHttpClient,
+                                       ClientOverrideConfiguration s3ClientOverrideConfiguration,
+                                       ObjectProvider<LocalS3Server> localS3Server) {
+
+        AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClient(s3AsyncHttpClient)
+                .overrideConfiguration(s3ClientOverrideConfiguration)
+                .forcePathStyle(pathStyle(localS3Server));
+
+        URI endpointOverride = endpointOverride(localS3Server);
+        if (endpointOverride != null) {
+            builder.endpointOverride(endpointOverride);
+        }
+        return builder.build();
     }
 
     @Bean
     public S3Presigner s3Presigner(@Value("${aws.accessKey}") String accessKey,
                                    @Value("${aws.secretKey}") String secretKey,
-                                   @Value("${aws.region}") String region) {
+                                   @Value("${aws.region}") String region,
+                                   ObjectProvider<LocalS3Server> localS3Server) {
 
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
-        return S3Presigner.builder()
+        S3Presigner.Builder builder = S3Presigner.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(pathStyle(localS3Server))
+                        .build());
+
+        URI endpointOverride = endpointOverride(localS3Server);
+        if (endpointOverride != null) {
+            builder.endpointOverride(endpointOverride);
+        }
+        return builder.build();
+    }
+
+    // Checks URLs this service signed without asking S3, for answers that never reach S3 (content cache hits)
+    @Bean
+    public PresignedUrlSignature presignedUrlSignature(@Value("${aws.accessKey}") String accessKey,
+                                                      @Value("${aws.secretKey}") String secretKey) {
+        return new PresignedUrlSignature(accessKey, secretKey, Clock.systemUTC());
+    }
+
+    // The local stand-in, when enabled, takes precedence over any configured endpoint
+    private URI endpointOverride(ObjectProvider<LocalS3Server> localS3Server) {
+        LocalS3Server local = localS3Server.getIfAvailable();
+        if (local != null) {
+            return URI.create(local.endpoint());
+        }
+        return endpoint.isBlank() ? null : URI.create(endpoint);
+    }
+
+    private boolean pathStyle(ObjectProvider<LocalS3Server> localS3Server) {
+        return pathStyleAccess || localS3Server.getIfAvailable() != null;
     }
 
 }
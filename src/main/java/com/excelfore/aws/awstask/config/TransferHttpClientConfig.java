@@ -0,0 +1,77 @@
+package com.excelfore.aws.awstask.config;
+
+import com.excelfore.aws.awstask.metrics.TransferMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@Slf4j
+public class TransferHttpClientConfig {
+
+    // The JDK client reads its pool settings from system properties once, when the first client is built
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Bean
+    public ExecutorService transferExecutor(@Value("${aws.s3.transfer.executor:virtual}") String executorType,
+                                            @Value("${aws.s3.transfer.platform-threads:200}") int platformThreads) {
+
+        if ("platform".equalsIgnoreCase(executorType)) {
+            log.debug("Transfer executor: fixed pool of {} platform threads", platformThreads);
+            return Executors.newFixedThreadPool(platformThreads, Thread.ofPlatform().name("transfer-", 0).factory());
+        }
+
+        if (!"virtual".equalsIgnoreCase(executorType)) {
+            throw new IllegalArgumentException("Unsupported aws.s3.transfer.executor: " + executorType + " (expected virtual or platform)");
+        }
+
+        log.debug("Transfer executor: virtual thread per task");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transfer-", 0).factory());
+    }
+
+    @Bean
+    public HttpClient transferHttpClient(ExecutorService transferExecutor,
+                                         TransferMetrics transferMetrics,
+                                         @Value("${aws.s3.transfer.executor:virtual}") String executorType,
+                                         @Value("${aws.s3.transfer.http.version:HTTP_2}") HttpClient.Version version,
+                                         @Value("${aws.s3.transfer.http.connect-timeout:10s}") Duration connectTimeout,
+                                         @Value("${aws.s3.transfer.http.pool-size:0}") int poolSize,
+                                         @Value("${aws.s3.transfer.http.keep-alive-timeout:30s}") Duration keepAliveTimeout) {
+
+        setIfAbsent(POOL_SIZE_PROPERTY, String.valueOf(poolSize));
+        setIfAbsent(KEEP_ALIVE_PROPERTY, String.valueOf(keepAliveTimeout.toSeconds()));
+
+        log.debug("Transfer HttpClient - Version: {}, ConnectTimeout: {}, PoolSize: {}, KeepAlive: {}",
+                version, connectTimeout, System.getProperty(POOL_SIZE_PROPERTY), System.getProperty(KEEP_ALIVE_PROPERTY));
+
+        // The fixed platform pool is full of threads blocked in send(); the client's own callbacks and body
+        // subscribers need threads those senders are not holding, or the pool can wait on itself
+        ExecutorService clientExecutor = "platform".equalsIgnoreCase(executorType)
+                ? Executors.newCachedThreadPool(Thread.ofPlatform().name("transfer-http-", 0).daemon().factory())
+                : transferExecutor;
+
+        // HTTP/2 falls back to HTTP/1.1 per connection when the endpoint does not negotiate it
+        return transferMetrics.instrument(HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(clientExecutor)
+                .build());
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.excelfore.aws.awstask.controller;
+
+import com.excelfore.aws.awstask.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-client share of the transfer admission limits: a client identified by {@code client-header}, or by its
+ * address without one, may have at most {@code per-client.max-concurrent} API requests in flight. Anything over
+ * that is answered 429 straight away, so one client cannot fill the shared lanes on its own. Async requests
+ * (streamed downloads, V3) keep their slot until the response completes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClientConcurrencyFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.admission.per-client.max-concurrent:16}")
+    private int perClientMaxConcurrent;
+
+    @Value("${aws.s3.admission.client-header:X-Client-Id}")
+    private String clientHeader;
+
+    @Value("${aws.s3.admission.retry-after:5s}")
+    private Duration retryAfter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String client = clientOf(request);
+        // Counted atomically per key, so an entry is only removed once its count really is zero
+        if (inFlight.merge(client, 1, Integer::sum) > perClientMaxConcurrent) {
+            release(client);
+            reject(client, response);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new ReleaseOnComplete(client));
+            }
+        } finally {
+            if (!async) {
+                release(client);
+            }
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private void release(String client) {
+        inFlight.computeIfPresent(client, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void reject(String client, HttpServletResponse response) throws IOException {
+        meterRegistry.counter("awstask.admission.rejected", "limit", "client").increment();
+        log.debug("Request rejected, client {} already has {} requests in flight", client, perClientMaxConcurrent);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ApiResponse<>("TooManyRequests", "Too many concurrent requests from this client, retry later"));
+    }
+
+    // onComplete also follows a timeout or error, so it is the only place the slot is given back
+    private final class ReleaseOnComplete implements AsyncListener {
+
+        private final String client;
+
+        ReleaseOnComplete(String client) {
+            this.client = client;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(client);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+}
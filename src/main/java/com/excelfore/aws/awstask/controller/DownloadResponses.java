@@ -0,0 +1,148 @@
+package com.excelfore.aws.awstask.controller;
+
+import com.excelfore.aws.awstask.dto.ObjectStream;
+import com.excelfore.aws.awstask.util.ContentCoding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+final class DownloadResponses {
+
+    private static final String BODY_CLOSER = DownloadResponses.class.getName() + ".bodyCloser";
+
+    private DownloadResponses() {
+        throw new AssertionError("Utility class - do not instantiate");
+    }
+
+    static ResponseEntity<StreamingResponseBody> streaming(ObjectStream object, String acceptEncoding, HttpServletRequest request) {
+
+        closeWhenRequestEnds(object, request);
+
+        HttpStatus status = HttpStatus.valueOf(object.getStatusCode());
+
+        // 304 and 416 carry validators (or Content-Range) but no body
+        if (status == HttpStatus.NOT_MODIFIED || status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE) {
+            return withObjectHeaders(ResponseEntity.status(status), object).build();
+        }
+
+        // Compressed objects go out as stored when the client accepts gzip. A byte range of the stored form
+        // cannot be decoded on its own, so a 206 goes out encoded as well
+        boolean decode = ContentCoding.isGzip(object.getContentEncoding()) && status == HttpStatus.OK
+                && !ContentCoding.accepts(acceptEncoding, ContentCoding.GZIP);
+
+        // Bytes are copied from S3 to the servlet output stream as they arrive, never buffered whole.
+        // Content cache streams hand their file to FileChannel.transferTo instead
+        StreamingResponseBody body;
+        if (decode) {
+            body = outputStream -> {
+                try (InputStream inputStream = ContentCoding.decode(object.getBody(), object.getContentEncoding())) {
+                    inputStream.transferTo(outputStream);
+                }
+            };
+        } else {
+            body = outputStream -> {
+                try (InputStream inputStream = object.getBody()) {
+                    inputStream.transferTo(outputStream);
+                }
+            };
+        }
+
+        ResponseEntity.BodyBuilder response = withObjectHeaders(ResponseEntity.status(status), object)
+                .contentType(object.getContentType() != null
+                        ? MediaType.parseMediaType(object.getContentType())
+                        : MediaType.APPLICATION_OCTET_STREAM);
+
+        // The decoded length is not known up front, so a decoded body is sent chunked
+        if (object.getContentLength() > 0 && !decode) {
+            response.contentLength(object.getContentLength());
+        }
+        if (object.getContentEncoding() != null) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!decode) {
+                response.header(HttpHeaders.CONTENT_ENCODING, object.getContentEncoding());
+            }
+        }
+        if (object.getContentDisposition() != null) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, object.getContentDisposition());
+        }
+
+        return response.body(body);
+    }
+
+    // A download that completes after its async request timed out or failed is never written, so its body is closed here
+    static void closeIfAbandoned(CompletableFuture<ObjectStream> download, HttpServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).registerDeferredResultInterceptor(BODY_CLOSER, new DeferredResultProcessingInterceptor() {
+            @Override
+            public <T> boolean handleTimeout(NativeWebRequest webRequest, DeferredResult<T> deferredResult) {
+                download.thenAccept(object -> closeQuietly(object.getBody()));
+                return true;
+            }
+
+            @Override
+            public <T> boolean handleError(NativeWebRequest webRequest, DeferredResult<T> deferredResult, Throwable t) {
+                download.thenAccept(object -> closeQuietly(object.getBody()));
+                return true;
+            }
+        });
+    }
+
+    // The body holds an admission permit, an S3 connection or a content cache pin until it is closed. The streaming
+    // body closes it once written, but never runs if the client goes away first or the async request times out, so
+    // the end of the async request closes it too; closing an already closed body does nothing
+    private static void closeWhenRequestEnds(ObjectStream object, HttpServletRequest request) {
+        if (object.getBody() == null) {
+            return;
+        }
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(BODY_CLOSER, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                closeQuietly(object.getBody());
+            }
+        });
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Failed to close download body: {}", e.getMessage());
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withObjectHeaders(ResponseEntity.BodyBuilder response, ObjectStream object) {
+
+        response.header(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (object.getETag() != null) {
+            response.eTag(object.getETag());
+        }
+        if (object.getLastModified() != null) {
+            response.header(HttpHeaders.LAST_MODIFIED, object.getLastModified());
+        }
+        if (object.getCacheControl() != null) {
+            response.header(HttpHeaders.CACHE_CONTROL, object.getCacheControl());
+        }
+        if (object.getContentRange() != null) {
+            response.header(HttpHeaders.CONTENT_RANGE, object.getContentRange());
+        }
+        return response;
+    }
+
+}
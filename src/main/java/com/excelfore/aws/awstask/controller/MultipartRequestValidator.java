@@ -0,0 +1,30 @@
+package com.excelfore.aws.awstask.controller;
+
+import com.excelfore.aws.awstask.exception.MultipleFileSelectionException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+
+final class MultipartRequestValidator {
+
+    private MultipartRequestValidator() {
+        throw new AssertionError("Utility class - do not instantiate");
+    }
+
+    static void validateSingleFileUpload(HttpServletRequest request) {
+        try {
+            long fileCount = request.getParts().stream()
+                    .filter(part -> "file".equals(part.getName()) && part.getSize() > 0)
+                    .count();
+
+            if (fileCount > 1) {
+                throw new MultipleFileSelectionException("Multiple files uploaded. Only one file is allowed.");
+            }
+        } catch (IOException | ServletException e) {
+            throw new RuntimeException("Failed to parse request parts.", e);
+        }
+    }
+
+}
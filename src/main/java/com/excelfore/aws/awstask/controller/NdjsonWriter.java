@@ -0,0 +1,52 @@
+package com.excelfore.aws.awstask.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes one JSON document per line. Lines may come from several worker threads; a lock (not a monitor,
+ * so virtual threads are not pinned while the socket blocks) keeps them from interleaving.
+ */
+final class NdjsonWriter {
+
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    NdjsonWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.objectMapper = objectMapper;
+    }
+
+    void write(Object line) {
+        lock.lock();
+        try {
+            writer.write(objectMapper.writeValueAsString(line));
+            writer.write('\n');
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write NDJSON line", e);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() throws IOException {
+        lock.lock();
+        try {
+            writer.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -1,23 +1,38 @@
 package com.excelfore.aws.awstask.controller;
 
+import com.excelfore.aws.awstask.cache.ObjectContentCache;
 import com.excelfore.aws.awstask.dto.ApiResponse;
+import com.excelfore.aws.awstask.dto.BatchItemResult;
+import com.excelfore.aws.awstask.dto.BulkKeyResult;
+import com.excelfore.aws.awstask.dto.ContentCacheStats;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectKeyPage;
+import com.excelfore.aws.awstask.dto.ObjectStream;
 import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
-import com.excelfore.aws.awstask.exception.MultipleFileSelectionException;
+import com.excelfore.aws.awstask.dto.UploadSessionStatus;
+import com.excelfore.aws.awstask.service.ResumableUploadService;
+import com.excelfore.aws.awstask.service.S3BatchService;
 import com.excelfore.aws.awstask.service.S3ServiceV2;
 
-import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.Part;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.excelfore.aws.awstask.controller.MultipartRequestValidator.validateSingleFileUpload;
 
 @RestController
 @Slf4j
@@ -26,6 +41,12 @@ import java.util.Optional;
 public class S3ControllerV2 {
 
     private final S3ServiceV2 s3ServiceV2;
+    private final S3BatchService s3BatchService;
+    private final ObjectMapper objectMapper;
+    private final ObjectContentCache objectContentCache;
+    private final ResumableUploadService resumableUploadService;
+
+    private static final String CONTENT_SHA256_HEADER = "X-Content-SHA256";
 
     @PostMapping("/presigned-url")
     public ResponseEntity<ApiResponse<PresignedUrlResponse>> generatePresignedUrlForUpload(
@@ -36,6 +57,15 @@ public class S3ControllerV2 {
         return ResponseEntity.ok(new ApiResponse<>(response));
     }
 
+    // A client that already knows the digest skips sending and hashing the file; duplicates are answered from the index
+    @PostMapping(value = "/presigned-url", headers = CONTENT_SHA256_HEADER)
+    public ResponseEntity<ApiResponse<PresignedUrlResponse>> generatePresignedUrlForUploadByDigest(
+            @RequestHeader(CONTENT_SHA256_HEADER) String contentSha256) {
+
+        PresignedUrlResponse response = s3ServiceV2.getValidPresignedUrlForUpload(contentSha256);
+        return ResponseEntity.ok(new ApiResponse<>(response));
+    }
+
     @PostMapping("/upload-file-using-presigned-url")
     public ResponseEntity<ApiResponse<String>> uploadFileUsingPresignedUrl(
             @RequestParam("file") MultipartFile file,
@@ -46,6 +76,71 @@ public class S3ControllerV2 {
         return ResponseEntity.ok(new ApiResponse<>("File " + objName + " Uploaded Successfully"));
     }
 
+    // Resumable upload: open a session for a presigned URL, PUT parts in order, resume from nextPart after a failure
+    @PostMapping("/uploads")
+    public ResponseEntity<ApiResponse<UploadSessionStatus>> startResumableUpload(
+            @RequestParam("presignedUrl") String presignedUrl,
+            @RequestParam("size") long size,
+            @RequestParam(value = "contentType", required = false) String contentType) {
+
+        UploadSessionStatus status = resumableUploadService.startSession(presignedUrl, size, contentType);
+        return ResponseEntity.ok(new ApiResponse<>(status));
+    }
+
+    @GetMapping("/uploads/{sessionId}")
+    public ResponseEntity<ApiResponse<UploadSessionStatus>> getResumableUpload(@PathVariable String sessionId) {
+        return ResponseEntity.ok(new ApiResponse<>(resumableUploadService.getStatus(sessionId)));
+    }
+
+    @PutMapping(value = "/uploads/{sessionId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ApiResponse<UploadSessionStatus>> uploadResumablePart(
+            @PathVariable String sessionId,
+            @PathVariable int partNumber,
+            HttpServletRequest request) throws IOException {
+
+        // The body is read by the service only once the part's expected length is known
+        UploadSessionStatus status = resumableUploadService.uploadPart(sessionId, partNumber,
+                request.getInputStream(), request.getContentLengthLong());
+        return ResponseEntity.ok(new ApiResponse<>(status));
+    }
+
+    @PostMapping("/uploads/{sessionId}/complete")
+    public ResponseEntity<ApiResponse<String>> completeResumableUpload(@PathVariable String sessionId) {
+        String objName = resumableUploadService.complete(sessionId);
+        return ResponseEntity.ok(new ApiResponse<>("File " + objName + " Uploaded Successfully"));
+    }
+
+    @DeleteMapping("/uploads/{sessionId}")
+    public ResponseEntity<ApiResponse<String>> abortResumableUpload(@PathVariable String sessionId) {
+        resumableUploadService.abort(sessionId);
+        return ResponseEntity.ok(new ApiResponse<>("Upload " + sessionId + " Aborted"));
+    }
+
+    @PostMapping("/batch/presigned-url")
+    public ResponseEntity<ApiResponse<List<BatchItemResult<PresignedUrlResponse>>>> generatePresignedUrlsForUpload(
+            @RequestParam("files") List<MultipartFile> files) {
+
+        List<BatchItemResult<PresignedUrlResponse>> results = s3BatchService.getValidPresignedUrlsForUpload(files);
+        return ResponseEntity.ok(new ApiResponse<>(results));
+    }
+
+    @PostMapping("/batch/upload")
+    public ResponseEntity<ApiResponse<List<BatchItemResult<String>>>> uploadFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "presignedUrls", required = false) List<String> presignedUrls) {
+
+        List<BatchItemResult<String>> results = s3BatchService.uploadFiles(files, presignedUrls);
+        return ResponseEntity.ok(new ApiResponse<>(results));
+    }
+
+    @PostMapping("/batch/download-presigned-url")
+    public ResponseEntity<ApiResponse<List<BatchItemResult<PresignedUrlResponse>>>> generatePresignedUrlsForDownload(
+            @RequestBody List<String> objectNames) {
+
+        List<BatchItemResult<PresignedUrlResponse>> results = s3BatchService.getValidPresignedUrlsForDownload(objectNames);
+        return ResponseEntity.ok(new ApiResponse<>(results));
+    }
+
     @PostMapping("/download-presigned-url")
     public ResponseEntity<ApiResponse<PresignedUrlResponse>> generatePresignedUrlForDownload(
             @RequestParam("objectName") String objectName) {
@@ -54,12 +149,24 @@ public class S3ControllerV2 {
         return ResponseEntity.ok(new ApiResponse<>(response));
     }
 
-    @PostMapping("/download-file-using-presigned-url")
-    public ResponseEntity<byte[]> downloadFileUsingPresigned(@RequestParam("presignedUrl") String presignedUrl) {
-        log.debug("Downloading from presigned URL: {}", presignedUrl);
+    // GET as well as POST, so resuming download tools and browser caches can send Range and validators
+    @RequestMapping(value = "/download-file-using-presigned-url", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<StreamingResponseBody> downloadFileUsingPresigned(
+            @RequestParam("presignedUrl") String presignedUrl,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+
+        ObjectStream object = s3ServiceV2.downloadFileWithPresign(presignedUrl,
+                new DownloadConditions(range, ifNoneMatch, ifModifiedSince));
+        return DownloadResponses.streaming(object, acceptEncoding, request);
+    }
 
-        byte[] fileBytes = s3ServiceV2.downloadFileWithPresign(presignedUrl);
-        return ResponseEntity.ok().body(fileBytes);
+    @GetMapping("/content-cache/stats")
+    public ResponseEntity<ApiResponse<ContentCacheStats>> getContentCacheStats() {
+        return ResponseEntity.ok(new ApiResponse<>(objectContentCache.stats()));
     }
 
     @GetMapping("/list")
@@ -77,18 +184,75 @@ public class S3ControllerV2 {
         return ResponseEntity.ok(filenames);
     }
 
-    private void validateSingleFileUpload(HttpServletRequest request) {
-        try {
-            long fileCount = request.getParts().stream()
-                    .filter(part -> "file".equals(part.getName()) && part.getSize() > 0)
-                    .count();
+    @GetMapping("/list/page")
+    public ResponseEntity<ObjectKeyPage> getObjectKeyPage(
+            @RequestParam(required = false) String startWith,
+            @RequestParam(required = false) String endWith,
+            @RequestParam(defaultValue = "1000") int pageSize,
+            @RequestParam(required = false) String cursor) {
+
+        ObjectKeyPage page = s3ServiceV2.listObjectKeyPage(
+                Optional.ofNullable(startWith),
+                Optional.ofNullable(endWith),
+                pageSize,
+                Optional.ofNullable(cursor)
+        );
+
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/list/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllObjectKeys(
+            @RequestParam(required = false) String startWith,
+            @RequestParam(required = false) String endWith) {
 
-            if (fileCount > 1) {
-                throw new MultipleFileSelectionException("Multiple files uploaded. Only one file is allowed.");
+        log.debug("Streaming file names with filters: startWith='{}', endWith='{}'", startWith, endWith);
+
+        // One {"key":...} line per object, written as the paginator fetches each page
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(outputStream, objectMapper);
+            try (Stream<String> keys = s3ServiceV2.streamObjectKeyNames(Optional.ofNullable(startWith), Optional.ofNullable(endWith))) {
+                keys.forEach(key -> writer.write(Map.of("key", key)));
             }
-        } catch (IOException | ServletException e) {
-            throw new RuntimeException("Failed to parse request parts.", e);
-        }
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping(value = "/bulk/exists", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> checkObjectsExist(@RequestBody List<String> objectNames) {
+
+        // Checked before the body is built: once streaming starts, the 200 is already committed
+        s3ServiceV2.validateBulkSize(objectNames);
+
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(outputStream, objectMapper);
+            s3ServiceV2.checkObjectsExist(objectNames, writer::write);
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping(value = "/bulk/delete", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> deleteObjects(@RequestBody List<String> objectNames) {
+
+        s3ServiceV2.validateBulkSize(objectNames);
+
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(outputStream, objectMapper);
+            s3ServiceV2.deleteObjects(objectNames, writer::write);
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
 
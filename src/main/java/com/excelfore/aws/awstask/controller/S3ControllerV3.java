@@ -0,0 +1,86 @@
+package com.excelfore.aws.awstask.controller;
+
+import com.excelfore.aws.awstask.dto.ApiResponse;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectStream;
+import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
+import com.excelfore.aws.awstask.service.S3ServiceV3;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.excelfore.aws.awstask.controller.MultipartRequestValidator.validateSingleFileUpload;
+
+@RestController
+@Slf4j
+@RequiredArgsConstructor
+@RequestMapping("/api/v3/s3_bucket")
+public class S3ControllerV3 {
+
+    private final S3ServiceV3 s3ServiceV3;
+
+    @PostMapping("/presigned-url")
+    public CompletableFuture<ResponseEntity<ApiResponse<PresignedUrlResponse>>> generatePresignedUrlForUpload(
+            @RequestParam("file") MultipartFile file,  HttpServletRequest request) {
+
+        validateSingleFileUpload(request);
+        return s3ServiceV3.getValidPresignedUrlForUpload(file)
+                .thenApply(response -> ResponseEntity.ok(new ApiResponse<>(response)));
+    }
+
+    @PostMapping("/upload-file-using-presigned-url")
+    public CompletableFuture<ResponseEntity<ApiResponse<String>>> uploadFileUsingPresignedUrl(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("presignedUrl") String presignedUrl, HttpServletRequest request) {
+
+        validateSingleFileUpload(request);
+        return s3ServiceV3.uploadFileWithPresign(file, presignedUrl)
+                .thenApply(objName -> ResponseEntity.ok(new ApiResponse<>("File " + objName + " Uploaded Successfully")));
+    }
+
+    @PostMapping("/download-presigned-url")
+    public CompletableFuture<ResponseEntity<ApiResponse<PresignedUrlResponse>>> generatePresignedUrlForDownload(
+            @RequestParam("objectName") String objectName) {
+
+        return s3ServiceV3.getValidPresignedUrlForDownload(objectName)
+                .thenApply(response -> ResponseEntity.ok(new ApiResponse<>(response)));
+    }
+
+    @RequestMapping(value = "/download-file-using-presigned-url", method = {RequestMethod.GET, RequestMethod.POST})
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadFileUsingPresigned(
+            @RequestParam("presignedUrl") String presignedUrl,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+
+        CompletableFuture<ObjectStream> download = s3ServiceV3.downloadFileWithPresign(presignedUrl,
+                new DownloadConditions(range, ifNoneMatch, ifModifiedSince));
+        DownloadResponses.closeIfAbandoned(download, request);
+        return download.thenApply(object -> DownloadResponses.streaming(object, acceptEncoding, request));
+    }
+
+    @GetMapping("/list")
+    public CompletableFuture<ResponseEntity<List<String>>> getAllObjectKeys(
+            @RequestParam(required = false) String startWith,
+            @RequestParam(required = false) String endWith) {
+
+        log.debug("Fetching file names with filters: startWith='{}', endWith='{}'", startWith, endWith);
+
+        return s3ServiceV3.listOfObjectKeyName(Optional.ofNullable(startWith), Optional.ofNullable(endWith))
+                .thenApply(ResponseEntity::ok);
+    }
+
+}
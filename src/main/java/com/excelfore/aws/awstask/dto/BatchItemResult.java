@@ -0,0 +1,26 @@
+package com.excelfore.aws.awstask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult<T> {
+    private String name;
+    private T result;
+
+    private String error;
+    private String errorMessage;
+
+    public static <T> BatchItemResult<T> success(String name, T result) {
+        return new BatchItemResult<>(name, result, null, null);
+    }
+
+    public static <T> BatchItemResult<T> failure(String name, Exception ex) {
+        return new BatchItemResult<>(name, null, ex.getClass().getSimpleName(), ex.getMessage());
+    }
+}
@@ -0,0 +1,28 @@
+package com.excelfore.aws.awstask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkKeyResult {
+    private String key;
+    private Status status;
+    private String errorMessage;
+
+    public enum Status {
+        EXISTS,
+        MISSING,
+        DELETED,
+        FAILED
+    }
+
+    public BulkKeyResult(String key, Status status) {
+        this.key = key;
+        this.status = status;
+    }
+}
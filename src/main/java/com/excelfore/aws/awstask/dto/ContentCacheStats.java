@@ -0,0 +1,20 @@
+package com.excelfore.aws.awstask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ContentCacheStats {
+    private int entries;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long bytesSaved;
+    private long evictions;
+    private long evictedBytes;
+
+}
@@ -0,0 +1,21 @@
+package com.excelfore.aws.awstask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Client Range and validators, forwarded to S3 on the presigned GET
+@Data
+@AllArgsConstructor
+public class DownloadConditions {
+    private String range;
+    private String ifNoneMatch;
+    private String ifModifiedSince;
+
+    public static DownloadConditions none() {
+        return new DownloadConditions(null, null, null);
+    }
+
+    public boolean isEmpty() {
+        return range == null && ifNoneMatch == null && ifModifiedSince == null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.excelfore.aws.awstask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ObjectKeyPage {
+    private List<String> keys;
+    private String nextCursor;
+    private boolean truncated;
+
+}
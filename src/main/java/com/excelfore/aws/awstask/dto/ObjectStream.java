@@ -0,0 +1,30 @@
+package com.excelfore.aws.awstask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.InputStream;
+
+@Data
+@AllArgsConstructor
+public class ObjectStream {
+    private InputStream body;
+    private long contentLength;
+    private String eTag;
+    private String contentType;
+    private String contentDisposition;
+
+    // 200, or 206 / 304 / 416 passed through from a ranged or conditional GET
+    private int statusCode;
+    private String contentRange;
+    private String lastModified;
+    private String cacheControl;
+
+    // As stored on the object, e.g. gzip for uploads that went through the compression tier
+    private String contentEncoding;
+
+    public ObjectStream(InputStream body, long contentLength, String eTag, String contentType, String contentDisposition) {
+        this(body, contentLength, eTag, contentType, contentDisposition, 200, null, null, null, null);
+    }
+
+}
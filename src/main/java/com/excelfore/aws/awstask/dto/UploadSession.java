@@ -0,0 +1,37 @@
+package com.excelfore.aws.awstask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Persisted state of one resumable upload; parts are appended in order as they land in S3
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSession {
+    private String sessionId;
+    private String key;
+    private String sha256;
+    private String uploadId;
+    private String contentType;
+    private long totalSize;
+    private int partSize;
+    private long createdAt;
+    private List<UploadedPart> parts = new ArrayList<>();
+
+    public int totalParts() {
+        return (int) ((totalSize + partSize - 1) / partSize);
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UploadedPart {
+        private int partNumber;
+        private String eTag;
+        private String checksumSha256;
+    }
+}
@@ -0,0 +1,21 @@
+package com.excelfore.aws.awstask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadSessionStatus {
+    private String sessionId;
+    private String key;
+    private long totalSize;
+    private int partSize;
+    private int totalParts;
+    private int receivedParts;
+    private Integer nextPart;
+
+}
@@ -1,6 +1,7 @@
 package com.excelfore.aws.awstask.exception;
 
 import com.excelfore.aws.awstask.dto.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -87,6 +88,44 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
     }
 
+    @ExceptionHandler(InvalidListRequestException.class)
+    public ResponseEntity<ApiResponse<Object>> handleInvalidListRequest(InvalidListRequestException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(InvalidBatchRequestException.class)
+    public ResponseEntity<ApiResponse<Object>> handleInvalidBatchRequest(InvalidBatchRequestException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(InvalidDigestException.class)
+    public ResponseEntity<ApiResponse<Object>> handleInvalidDigest(InvalidDigestException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(UploadSessionNotFoundException.class)
+    public ResponseEntity<ApiResponse<Object>> handleUploadSessionNotFound(UploadSessionNotFoundException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    @ExceptionHandler(InvalidUploadPartException.class)
+    public ResponseEntity<ApiResponse<Object>> handleInvalidUploadPart(InvalidUploadPartException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(TransferRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTransferRejected(TransferRejectedException ex) {
+        ApiResponse<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Object>> handleGenericException(Exception ex) {
         ApiResponse<Object> response = buildErrorResponse(ex);
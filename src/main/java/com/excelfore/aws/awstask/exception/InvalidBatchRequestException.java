@@ -0,0 +1,7 @@
+package com.excelfore.aws.awstask.exception;
+
+public class InvalidBatchRequestException extends RuntimeException {
+    public InvalidBatchRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.excelfore.aws.awstask.exception;
+
+public class InvalidDigestException extends RuntimeException {
+    public InvalidDigestException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.excelfore.aws.awstask.exception;
+
+public class InvalidListRequestException extends RuntimeException {
+    public InvalidListRequestException(String message) {
+        super(message);
+    }
+}
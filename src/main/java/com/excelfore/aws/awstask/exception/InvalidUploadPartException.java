@@ -0,0 +1,7 @@
+package com.excelfore.aws.awstask.exception;
+
+public class InvalidUploadPartException extends RuntimeException {
+    public InvalidUploadPartException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
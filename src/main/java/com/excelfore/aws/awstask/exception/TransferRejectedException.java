@@ -0,0 +1,14 @@
+package com.excelfore.aws.awstask.exception;
+
+public class TransferRejectedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TransferRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
\ No newline at end of file
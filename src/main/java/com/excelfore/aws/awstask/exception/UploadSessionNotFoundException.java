@@ -0,0 +1,7 @@
+package com.excelfore.aws.awstask.exception;
+
+public class UploadSessionNotFoundException extends RuntimeException {
+    public UploadSessionNotFoundException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.excelfore.aws.awstask.local;
+
+// An S3 error response: HTTP status plus the XML error code clients and the SDK map exceptions from
+final class LocalS3Error extends RuntimeException {
+
+    private final int status;
+    private final String code;
+
+    LocalS3Error(int status, String code, String message) {
+        super(message);
+        this.status = status;
+        this.code = code;
+    }
+
+    int status() {
+        return status;
+    }
+
+    String code() {
+        return code;
+    }
+
+}
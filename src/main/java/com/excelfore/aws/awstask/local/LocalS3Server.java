@@ -0,0 +1,774 @@
+package com.excelfore.aws.awstask.local;
+
+import com.excelfore.aws.awstask.util.PresignedUrlSignature;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process, in-memory S3 stand-in for offline runs, CI and load tests. It speaks the part of the path-style
+ * REST API this service uses: object PUT, GET, HEAD and DELETE (with Range and conditional GET), ListObjectsV2,
+ * batch delete and multipart uploads, with SHA-256 checksums and S3's part size rules. Presigned URLs are
+ * verified against the configured credentials and expiry as S3 would; SDK calls only need the right access key.
+ * <p>
+ * {@code latency}, {@code latency-jitter} and {@code throttle-rate} (a share of requests answered 503 SlowDown)
+ * make it behave like a slow or overloaded S3. When enabled, {@code AwsS3Config} points every S3 client here.
+ * Object bodies are held on the heap, so it is meant for test-sized data. Starting it turns on
+ * {@code sun.net.httpserver.nodelay} JVM-wide unless that property is already set.
+ */
+@Component
+@ConditionalOnProperty(name = "aws.s3.local.enabled", havingValue = "true")
+@Slf4j
+public class LocalS3Server {
+
+    private static final String XML_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PART_NUMBER = 10000;
+    private static final int BACKLOG = 1024;
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final Pattern PART_PATTERN =
+            Pattern.compile("<Part>.*?<ETag>(.*?)</ETag>.*?<PartNumber>(\\d+)</PartNumber>.*?</Part>|<Part>.*?<PartNumber>(\\d+)</PartNumber>.*?<ETag>(.*?)</ETag>.*?</Part>", Pattern.DOTALL);
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    @Value("${aws.s3.local.port:0}")
+    private int port;
+
+    @Value("${aws.s3.bucket}")
+    private String bucket;
+
+    @Value("${aws.accessKey}")
+    private String accessKey;
+
+    @Value("${aws.secretKey}")
+    private String secretKey;
+
+    @Value("${aws.s3.local.verify-signatures:true}")
+    private boolean verifySignatures;
+
+    @Value("${aws.s3.local.latency:0ms}")
+    private Duration latency;
+
+    @Value("${aws.s3.local.latency-jitter:0ms}")
+    private Duration latencyJitter;
+
+    @Value("${aws.s3.local.throttle-rate:0}")
+    private double throttleRate;
+
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private PresignedUrlVerifier verifier;
+
+    private record StoredObject(byte[] content, String contentType, String contentEncoding, String eTag,
+                                Instant lastModified, String checksumSha256) {}
+
+    private record Part(byte[] content, String eTag, String checksumSha256) {}
+
+    private record Upload(String key, String contentType, String contentEncoding, Instant initiated,
+                          NavigableMap<Integer, Part> parts) {}
+
+    private record Request(HttpExchange exchange, String method, String key, Map<String, String> query,
+                           List<Map.Entry<String, String>> queryParams) {
+
+        Headers headers() {
+            return exchange.getRequestHeaders();
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        // Without TCP_NODELAY, delayed ACKs between header and body writes dominate every request. The JDK reads
+        // this once, when the first HttpServer is created, so it applies to every com.sun.net.httpserver server in
+        // the JVM; it is only set when the stand-in runs, and an explicit -D value is left alone
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        verifier = new PresignedUrlVerifier(accessKey, secretKey, Clock.systemUTC());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/", this::handle);
+        // Platform threads: with the transfer client on virtual threads in the same JVM, large bodies stall
+        executor = Executors.newCachedThreadPool(Thread.ofPlatform().name("local-s3-", 0).daemon().factory());
+        server.setExecutor(executor);
+        server.start();
+
+        log.info("Local S3 stand-in listening on {} for bucket {}. Signatures: {}, Latency: {} (+{}), Throttle rate: {}",
+                endpoint(), bucket, verifySignatures ? "verified" : "ignored", latency, latencyJitter, throttleRate);
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String endpoint() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    // Seeds content directly, e.g. for download benchmarks, without going through the API
+    public void put(String key, byte[] content) {
+        objects.put(key, new StoredObject(content, "application/octet-stream", null, quote(md5Hex(content)),
+                Instant.now(), null));
+    }
+
+    public void remove(String key) {
+        objects.remove(key);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String requestId = String.format("%016X", requestIds.incrementAndGet());
+            exchange.getResponseHeaders().set("x-amz-request-id", requestId);
+
+            try {
+                injectFaults();
+                Request request = parse(exchange);
+                authenticate(request);
+                route(request);
+
+            } catch (LocalS3Error e) {
+                sendError(exchange, e, requestId);
+            }
+        }
+    }
+
+    private void injectFaults() {
+        long delayNanos = latency.toNanos();
+        if (!latencyJitter.isZero()) {
+            delayNanos += ThreadLocalRandom.current().nextLong(latencyJitter.toNanos() + 1);
+        }
+        if (delayNanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delayNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            throw new LocalS3Error(503, "SlowDown", "Please reduce your request rate.");
+        }
+    }
+
+    // Path-style: /<bucket>[/<key>]
+    private Request parse(HttpExchange exchange) {
+        URI uri = exchange.getRequestURI();
+        String path = uri.getPath();
+        int keyStart = path.indexOf('/', 1);
+        String requestBucket = keyStart < 0 ? path.substring(1) : path.substring(1, keyStart);
+        String key = keyStart < 0 ? "" : path.substring(keyStart + 1);
+
+        if (!requestBucket.equals(bucket)) {
+            throw new LocalS3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+
+        List<Map.Entry<String, String>> queryParams = PresignedUrlSignature.parseQuery(uri.getRawQuery());
+        Map<String, String> query = new HashMap<>();
+        queryParams.forEach(param -> query.putIfAbsent(param.getKey(), param.getValue()));
+        return new Request(exchange, exchange.getRequestMethod(), key, query, queryParams);
+    }
+
+    private void authenticate(Request request) {
+        if (!verifySignatures) {
+            return;
+        }
+
+        if (PresignedUrlVerifier.isPresigned(request.query())) {
+            verifier.verify(request.method(), request.exchange().getRequestURI().getRawPath(), request.queryParams(),
+                    request.headers());
+            return;
+        }
+
+        // SDK requests are signed per request (and per chunk); checking who sent them is enough here
+        String authorization = request.headers().getFirst("Authorization");
+        if (authorization == null || !authorization.contains("Credential=" + accessKey + "/")) {
+            throw new LocalS3Error(403, "AccessDenied", "Access Denied");
+        }
+    }
+
+    private void route(Request request) throws IOException {
+        Map<String, String> query = request.query();
+
+        if (request.key().isEmpty()) {
+            switch (request.method()) {
+                case "GET" -> {
+                    if (query.containsKey("uploads")) {
+                        listMultipartUploads(request);
+                    } else {
+                        listObjects(request);
+                    }
+                }
+                case "POST" -> {
+                    if (!query.containsKey("delete")) {
+                        throw notImplemented();
+                    }
+                    deleteObjects(request);
+                }
+                default -> throw notImplemented();
+            }
+            return;
+        }
+
+        switch (request.method()) {
+            case "PUT" -> {
+                if (query.containsKey("uploadId")) {
+                    uploadPart(request);
+                } else {
+                    putObject(request);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    createMultipartUpload(request);
+                } else if (query.containsKey("uploadId")) {
+                    completeMultipartUpload(request);
+                } else {
+                    throw notImplemented();
+                }
+            }
+            case "DELETE" -> {
+                if (query.containsKey("uploadId")) {
+                    abortMultipartUpload(request);
+                } else {
+                    objects.remove(request.key());
+                    request.exchange().sendResponseHeaders(204, -1);
+                }
+            }
+            case "GET", "HEAD" -> getObject(request);
+            default -> throw notImplemented();
+        }
+    }
+
+    private void putObject(Request request) throws IOException {
+        Map<String, String> trailers = new HashMap<>();
+        byte[] content = readBody(request, trailers);
+        String checksum = verifyChecksum(request, content, trailers);
+
+        StoredObject stored = new StoredObject(content, request.headers().getFirst("Content-Type"),
+                storedContentEncoding(request.headers()), quote(md5Hex(content)), Instant.now(), checksum);
+        objects.put(request.key(), stored);
+
+        Headers responseHeaders = request.exchange().getResponseHeaders();
+        responseHeaders.set("ETag", stored.eTag());
+        if (checksum != null) {
+            responseHeaders.set("x-amz-checksum-sha256", checksum);
+        }
+        request.exchange().sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(Request request) throws IOException {
+        HttpExchange exchange = request.exchange();
+        boolean head = "HEAD".equals(request.method());
+
+        StoredObject stored = objects.get(request.key());
+        if (stored == null) {
+            throw new LocalS3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", stored.eTag());
+        responseHeaders.set("Last-Modified", HTTP_DATE_FORMAT.format(stored.lastModified()));
+        responseHeaders.set("Accept-Ranges", "bytes");
+        responseHeaders.set("Content-Type", stored.contentType() == null ? "binary/octet-stream" : stored.contentType());
+        if (stored.contentEncoding() != null) {
+            responseHeaders.set("Content-Encoding", stored.contentEncoding());
+        }
+        if (stored.checksumSha256() != null && "ENABLED".equalsIgnoreCase(request.headers().getFirst("x-amz-checksum-mode"))) {
+            responseHeaders.set("x-amz-checksum-sha256", stored.checksumSha256());
+        }
+        if (request.query().containsKey("response-content-disposition")) {
+            responseHeaders.set("Content-Disposition", request.query().get("response-content-disposition"));
+        }
+
+        if (isNotModified(request.headers(), stored)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        long size = stored.content().length;
+        long[] range = head ? null : parseRange(request.headers().getFirst("Range"), size, responseHeaders);
+        if (range != null) {
+            responseHeaders.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+        }
+        int offset = range == null ? 0 : (int) range[0];
+        int length = range == null ? (int) size : (int) (range[1] - range[0] + 1);
+
+        if (head || length == 0) {
+            responseHeaders.set("Content-Length", Long.toString(length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(range == null ? 200 : 206, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(stored.content(), offset, length);
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since, as in RFC 9110
+    private static boolean isNotModified(Headers headers, StoredObject stored) {
+        String ifNoneMatch = headers.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String eTag : ifNoneMatch.split(",")) {
+                String candidate = eTag.trim().replaceFirst("^W/", "");
+                if (candidate.equals("*") || candidate.equals(stored.eTag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String ifModifiedSince = headers.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return !stored.lastModified().truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // A single byte range; anything S3 would ignore (several ranges, bad syntax) serves the whole object
+    private static long[] parseRange(String range, long size, Headers responseHeaders) {
+        if (range == null || !range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        long start;
+        long end;
+        try {
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(size - 1, Long.parseLong(spec.substring(dash + 1)));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (start >= size || start > end) {
+            responseHeaders.set("Content-Range", "bytes */" + size);
+            throw new LocalS3Error(416, "InvalidRange", "The requested range is not satisfiable");
+        }
+        return new long[] {start, end};
+    }
+
+    private void listObjects(Request request) throws IOException {
+        Map<String, String> query = request.query();
+        String prefix = query.getOrDefault("prefix", "");
+        boolean urlEncoded = "url".equals(query.get("encoding-type"));
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+
+        // The continuation token is simply the last key of the previous page
+        String after = query.get("start-after");
+        String token = query.get("continuation-token");
+        if (token != null) {
+            after = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        }
+
+        NavigableMap<String, StoredObject> candidates = after != null && after.compareTo(prefix) >= 0
+                ? objects.tailMap(after, false)
+                : objects.tailMap(prefix, true);
+
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        String lastKey = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            StoredObject stored = entry.getValue();
+            contents.append("<Contents>")
+                    .append(element("Key", listedKey(entry.getKey(), urlEncoded)))
+                    .append(element("LastModified", DateTimeFormatter.ISO_INSTANT.format(stored.lastModified().truncatedTo(ChronoUnit.MILLIS))))
+                    .append(element("ETag", stored.eTag()))
+                    .append(element("Size", Long.toString(stored.content().length)))
+                    .append(element("StorageClass", "STANDARD"))
+                    .append("</Contents>");
+            lastKey = entry.getKey();
+            count++;
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + XML_NAMESPACE + "\">")
+                .append(element("Name", bucket))
+                .append(element("Prefix", listedKey(prefix, urlEncoded)))
+                .append(element("KeyCount", Integer.toString(count)))
+                .append(element("MaxKeys", Integer.toString(maxKeys)))
+                .append(element("IsTruncated", Boolean.toString(truncated)));
+        if (urlEncoded) {
+            xml.append(element("EncodingType", "url"));
+        }
+        if (token != null) {
+            xml.append(element("ContinuationToken", token));
+        }
+        if (truncated) {
+            xml.append(element("NextContinuationToken",
+                    Base64.getUrlEncoder().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8))));
+        }
+        xml.append(contents).append("</ListBucketResult>");
+
+        sendXml(request.exchange(), 200, xml.toString());
+    }
+
+    private void deleteObjects(Request request) throws IOException {
+        String body = new String(readBody(request, new HashMap<>()), StandardCharsets.UTF_8);
+        boolean quiet = body.contains("<Quiet>true</Quiet>");
+
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + XML_NAMESPACE + "\">");
+        Matcher keys = KEY_PATTERN.matcher(body);
+        while (keys.find()) {
+            String key = unescape(keys.group(1));
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted>").append(element("Key", key)).append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+
+        sendXml(request.exchange(), 200, xml.toString());
+    }
+
+    private void createMultipartUpload(Request request) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new Upload(request.key(), request.headers().getFirst("Content-Type"),
+                storedContentEncoding(request.headers()), Instant.now(), new ConcurrentSkipListMap<>()));
+
+        sendXml(request.exchange(), 200, "<InitiateMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + element("Bucket", bucket)
+                + element("Key", request.key())
+                + element("UploadId", uploadId)
+                + "</InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(Request request) throws IOException {
+        Upload upload = requireUpload(request);
+
+        int partNumber;
+        try {
+            partNumber = Integer.parseInt(request.query().getOrDefault("partNumber", ""));
+        } catch (NumberFormatException e) {
+            partNumber = 0;
+        }
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new LocalS3Error(400, "InvalidArgument", "Part number must be an integer between 1 and " + MAX_PART_NUMBER);
+        }
+
+        Map<String, String> trailers = new HashMap<>();
+        byte[] content = readBody(request, trailers);
+        String checksum = verifyChecksum(request, content, trailers);
+
+        Part part = new Part(content, quote(md5Hex(content)), checksum);
+        upload.parts().put(partNumber, part);
+
+        Headers responseHeaders = request.exchange().getResponseHeaders();
+        responseHeaders.set("ETag", part.eTag());
+        if (checksum != null) {
+            responseHeaders.set("x-amz-checksum-sha256", checksum);
+        }
+        request.exchange().sendResponseHeaders(200, -1);
+    }
+
+    private void completeMultipartUpload(Request request) throws IOException {
+        Upload upload = requireUpload(request);
+        String body = new String(readBody(request, new HashMap<>()), StandardCharsets.UTF_8);
+
+        List<Part> parts = new ArrayList<>();
+        int previous = 0;
+        Matcher matcher = PART_PATTERN.matcher(body);
+        while (matcher.find()) {
+            String eTag = unescape(matcher.group(1) != null ? matcher.group(1) : matcher.group(4)).trim();
+            int partNumber = Integer.parseInt(matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+            if (partNumber <= previous) {
+                throw new LocalS3Error(400, "InvalidPartOrder", "The list of parts was not in ascending order.");
+            }
+            Part part = upload.parts().get(partNumber);
+            if (part == null || !part.eTag().equals(quote(eTag.replace("\"", "")))) {
+                throw new LocalS3Error(400, "InvalidPart", "One or more of the specified parts could not be found.");
+            }
+            parts.add(part);
+            previous = partNumber;
+        }
+        if (parts.isEmpty()) {
+            throw new LocalS3Error(400, "MalformedXML", "The XML you provided was not well-formed.");
+        }
+        for (int i = 0; i < parts.size() - 1; i++) {
+            if (parts.get(i).content().length < MIN_PART_SIZE) {
+                throw new LocalS3Error(400, "EntityTooSmall", "Your proposed upload is smaller than the minimum allowed object size.");
+            }
+        }
+
+        // ETag and checksum of a multipart object are digests of the part digests, suffixed with the part count
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        MessageDigest partMd5s = digest("MD5");
+        MessageDigest partChecksums = digest("SHA-256");
+        boolean checksummed = true;
+        for (Part part : parts) {
+            content.write(part.content());
+            partMd5s.update(HEX.parseHex(part.eTag().replace("\"", "")));
+            if (part.checksumSha256() == null) {
+                checksummed = false;
+            } else {
+                partChecksums.update(Base64.getDecoder().decode(part.checksumSha256()));
+            }
+        }
+        String eTag = quote(HEX.formatHex(partMd5s.digest()) + "-" + parts.size());
+        String checksum = checksummed
+                ? Base64.getEncoder().encodeToString(partChecksums.digest()) + "-" + parts.size()
+                : null;
+
+        objects.put(upload.key(), new StoredObject(content.toByteArray(), upload.contentType(), upload.contentEncoding(),
+                eTag, Instant.now(), checksum));
+        uploads.remove(request.query().get("uploadId"));
+
+        sendXml(request.exchange(), 200, "<CompleteMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + element("Location", endpoint() + "/" + bucket + "/" + upload.key())
+                + element("Bucket", bucket)
+                + element("Key", upload.key())
+                + element("ETag", eTag)
+                + (checksum != null ? element("ChecksumSHA256", checksum) : "")
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private void abortMultipartUpload(Request request) throws IOException {
+        requireUpload(request);
+        uploads.remove(request.query().get("uploadId"));
+        request.exchange().sendResponseHeaders(204, -1);
+    }
+
+    private void listMultipartUploads(Request request) throws IOException {
+        String prefix = request.query().getOrDefault("prefix", "");
+        boolean urlEncoded = "url".equals(request.query().get("encoding-type"));
+
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult xmlns=\"" + XML_NAMESPACE + "\">")
+                .append(element("Bucket", bucket))
+                .append(element("Prefix", listedKey(prefix, urlEncoded)))
+                .append(element("IsTruncated", "false"));
+        if (urlEncoded) {
+            xml.append(element("EncodingType", "url"));
+        }
+        uploads.entrySet().stream()
+                .filter(entry -> entry.getValue().key().startsWith(prefix))
+                .sorted(Map.Entry.comparingByValue((a, b) -> a.key().compareTo(b.key())))
+                .forEach(entry -> xml.append("<Upload>")
+                        .append(element("Key", listedKey(entry.getValue().key(), urlEncoded)))
+                        .append(element("UploadId", entry.getKey()))
+                        .append(element("Initiated", DateTimeFormatter.ISO_INSTANT.format(entry.getValue().initiated().truncatedTo(ChronoUnit.MILLIS))))
+                        .append("</Upload>"));
+        xml.append("</ListMultipartUploadsResult>");
+
+        sendXml(request.exchange(), 200, xml.toString());
+    }
+
+    private Upload requireUpload(Request request) {
+        Upload upload = uploads.get(request.query().get("uploadId"));
+        if (upload == null || !upload.key().equals(request.key())) {
+            throw new LocalS3Error(404, "NoSuchUpload", "The specified upload does not exist.");
+        }
+        return upload;
+    }
+
+    private static byte[] readBody(Request request, Map<String, String> trailers) throws IOException {
+        byte[] body;
+        try (InputStream inputStream = request.exchange().getRequestBody()) {
+            body = inputStream.readAllBytes();
+        }
+
+        String contentSha256 = request.headers().getFirst("x-amz-content-sha256");
+        String contentEncoding = request.headers().getFirst("Content-Encoding");
+        boolean awsChunked = (contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked"));
+        return awsChunked ? decodeAwsChunked(body, trailers) : body;
+    }
+
+    // <hex size>[;chunk-signature=...]\r\n<data>\r\n ... 0[;...]\r\n[<trailer>:<value>\r\n]*\r\n
+    private static byte[] decodeAwsChunked(byte[] body, Map<String, String> trailers) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(body.length);
+        int position = 0;
+        while (true) {
+            int lineEnd = indexOfCrlf(body, position);
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            content.write(body, position, size);
+            position += size + 2;
+        }
+
+        while (position < body.length) {
+            int lineEnd = indexOfCrlf(body, position);
+            if (lineEnd == position) {
+                break;
+            }
+            String trailer = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int colon = trailer.indexOf(':');
+            if (colon > 0) {
+                trailers.put(trailer.substring(0, colon).trim().toLowerCase(), trailer.substring(colon + 1).trim());
+            }
+            position = lineEnd + 2;
+        }
+        return content.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] body, int from) {
+        for (int i = from; i < body.length - 1; i++) {
+            if (body[i] == '\r' && body[i + 1] == '\n') {
+                return i;
+            }
+        }
+        throw new LocalS3Error(400, "IncompleteBody", "The request body terminated unexpectedly");
+    }
+
+    private static String verifyChecksum(Request request, byte[] content, Map<String, String> trailers) {
+        String expected = request.headers().getFirst("x-amz-checksum-sha256");
+        if (expected == null) {
+            expected = trailers.get("x-amz-checksum-sha256");
+        }
+        if (expected == null) {
+            return null;
+        }
+
+        String actual = Base64.getEncoder().encodeToString(digest("SHA-256").digest(content));
+        if (!actual.equals(expected)) {
+            throw new LocalS3Error(400, "BadDigest", "The SHA256 you specified did not match the calculated checksum.");
+        }
+        return actual;
+    }
+
+    // aws-chunked only describes the transfer; S3 stores whatever coding is left
+    private static String storedContentEncoding(Headers headers) {
+        String contentEncoding = headers.getFirst("Content-Encoding");
+        if (contentEncoding == null) {
+            return null;
+        }
+        String stored = String.join(",", contentEncoding.replace(" ", "").replace("aws-chunked", "").split(",+"))
+                .replaceAll("^,|,$", "");
+        return stored.isEmpty() ? null : stored;
+    }
+
+    private static void sendError(HttpExchange exchange, LocalS3Error error, String requestId) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(error.status(), -1);
+            return;
+        }
+        sendXml(exchange, error.status(), "<Error>"
+                + element("Code", error.code())
+                + element("Message", error.getMessage())
+                + element("RequestId", requestId)
+                + "</Error>");
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static LocalS3Error notImplemented() {
+        return new LocalS3Error(501, "NotImplemented", "The local S3 stand-in does not implement this operation");
+    }
+
+    private static String listedKey(String key, boolean urlEncoded) {
+        return urlEncoded ? PresignedUrlSignature.encode(key) : key;
+    }
+
+    private static String element(String name, String value) {
+        return "<" + name + ">" + escape(value) + "</" + name + ">";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;").replace("'", "&apos;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&quot;", "\"").replace("&apos;", "'").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+    private static String quote(String eTag) {
+        return "\"" + eTag + "\"";
+    }
+
+    private static String md5Hex(byte[] content) {
+        return HEX.formatHex(digest("MD5").digest(content));
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.excelfore.aws.awstask.local;
+
+import com.excelfore.aws.awstask.util.PresignedUrlSignature;
+
+import com.sun.net.httpserver.Headers;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+// Answers presigned requests with the error S3 would return for the signature check's outcome
+final class PresignedUrlVerifier {
+
+    private final PresignedUrlSignature signature;
+
+    PresignedUrlVerifier(String accessKey, String secretKey, Clock clock) {
+        this.signature = new PresignedUrlSignature(accessKey, secretKey, clock);
+    }
+
+    static boolean isPresigned(Map<String, String> query) {
+        return query.containsKey("X-Amz-Signature");
+    }
+
+    void verify(String method, String rawPath, List<Map.Entry<String, String>> queryParams, Headers headers) {
+
+        switch (signature.check(method, rawPath, queryParams, name -> headers.getOrDefault(name, List.of()))) {
+            case VALID -> {
+            }
+            case MALFORMED -> throw new LocalS3Error(400, "AuthorizationQueryParametersError",
+                    "Query-string authentication version 4 requires the X-Amz-Algorithm, X-Amz-Credential, X-Amz-Signature, X-Amz-Date, X-Amz-SignedHeaders, and X-Amz-Expires parameters.");
+            case UNKNOWN_ACCESS_KEY -> throw new LocalS3Error(403, "InvalidAccessKeyId",
+                    "The AWS Access Key Id you provided does not exist in our records.");
+            case EXPIRED -> throw new LocalS3Error(403, "AccessDenied", "Request has expired");
+            case SIGNATURE_MISMATCH -> throw new LocalS3Error(403, "SignatureDoesNotMatch",
+                    "The request signature we calculated does not match the signature you provided.");
+        }
+    }
+
+}
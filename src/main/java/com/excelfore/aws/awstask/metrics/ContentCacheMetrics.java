@@ -0,0 +1,45 @@
+package com.excelfore.aws.awstask.metrics;
+
+import com.excelfore.aws.awstask.cache.ObjectContentCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+// The counters behind /content-cache/stats, exposed as meters so hit ratio and churn can be graphed
+@Component
+@RequiredArgsConstructor
+public class ContentCacheMetrics implements MeterBinder {
+
+    private final ObjectContentCache objectContentCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("awstask.content-cache.entries", objectContentCache, cache -> cache.stats().getEntries())
+                .register(registry);
+        Gauge.builder("awstask.content-cache.size", objectContentCache, cache -> cache.stats().getSizeBytes())
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("awstask.content-cache.lookups", objectContentCache, cache -> cache.stats().getHits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("awstask.content-cache.lookups", objectContentCache, cache -> cache.stats().getMisses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("awstask.content-cache.served", objectContentCache, cache -> cache.stats().getBytesSaved())
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("awstask.content-cache.evictions", objectContentCache, cache -> cache.stats().getEvictions())
+                .register(registry);
+        FunctionCounter.builder("awstask.content-cache.evicted", objectContentCache, cache -> cache.stats().getEvictedBytes())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+}
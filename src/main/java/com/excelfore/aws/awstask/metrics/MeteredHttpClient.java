@@ -0,0 +1,276 @@
+package com.excelfore.aws.awstask.metrics;
+
+import io.micrometer.observation.Observation;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delegating {@link HttpClient} that meters each presigned S3 request. The request timer stops when the response
+ * headers arrive; a download stays counted as active, and its bytes are counted, until its body has been read
+ * or closed.
+ */
+final class MeteredHttpClient extends HttpClient {
+
+    private static final String REQUEST_ID_HEADER = "x-amz-request-id";
+
+    private final HttpClient delegate;
+    private final TransferMetrics metrics;
+
+    MeteredHttpClient(HttpClient delegate, TransferMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+            throws IOException, InterruptedException {
+
+        MeteredRequest metered = new MeteredRequest(request);
+        try {
+            HttpResponse<T> response = delegate.send(request, metered.wrap(responseBodyHandler));
+            metered.responded(response);
+            return response;
+
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            metered.failed(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        MeteredRequest metered = new MeteredRequest(request);
+        return delegate.sendAsync(request, metered.wrap(responseBodyHandler))
+                .whenComplete(metered::completed);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        MeteredRequest metered = new MeteredRequest(request);
+        return delegate.sendAsync(request, metered.wrap(responseBodyHandler), pushPromiseHandler)
+                .whenComplete(metered::completed);
+    }
+
+    private final class MeteredRequest {
+
+        private final HttpRequest request;
+        private final String operation;
+        private final String direction;
+        private final Observation observation;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        MeteredRequest(HttpRequest request) {
+            this.request = request;
+            this.operation = operationOf(request);
+            this.direction = "PUT".equals(request.method()) ? TransferMetrics.UPLOAD : TransferMetrics.DOWNLOAD;
+            this.observation = metrics.startRequest(operation);
+            metrics.transferStarted(direction);
+        }
+
+        <T> HttpResponse.BodyHandler<T> wrap(HttpResponse.BodyHandler<T> handler) {
+            if (TransferMetrics.UPLOAD.equals(direction)) {
+                return handler;
+            }
+            return responseInfo -> new CountingSubscriber<>(handler.apply(responseInfo), this);
+        }
+
+        void completed(HttpResponse<?> response, Throwable error) {
+            if (error != null) {
+                failed(error);
+            } else {
+                responded(response);
+            }
+        }
+
+        void responded(HttpResponse<?> response) {
+            int statusCode = response.statusCode();
+            String status = String.valueOf(statusCode);
+            Optional<String> requestId = response.headers().firstValue(REQUEST_ID_HEADER);
+
+            observation.lowCardinalityKeyValue("status", status);
+            requestId.ifPresent(id -> observation.highCardinalityKeyValue("aws.request.id", id));
+            observation.stop();
+
+            if (statusCode >= 400) {
+                metrics.recordError(operation, status, TransferMetrics.isThrottled(statusCode), requestId.orElse(null));
+            } else if (TransferMetrics.UPLOAD.equals(direction)) {
+                request.bodyPublisher()
+                        .map(HttpRequest.BodyPublisher::contentLength)
+                        .filter(length -> length > 0)
+                        .ifPresent(length -> metrics.recordBytes(direction, length));
+            }
+
+            // A download's body may still be streaming; its subscriber ends the transfer
+            if (TransferMetrics.UPLOAD.equals(direction)) {
+                finish();
+            }
+        }
+
+        void failed(Throwable error) {
+            observation.lowCardinalityKeyValue("status", TransferMetrics.CLIENT_ERROR);
+            observation.error(error);
+            observation.stop();
+            metrics.recordError(operation, TransferMetrics.CLIENT_ERROR, false, null);
+            finish();
+        }
+
+        void finish() {
+            if (active.compareAndSet(true, false)) {
+                metrics.transferFinished(direction);
+            }
+        }
+
+        void received(long bytes) {
+            metrics.recordBytes(direction, bytes);
+        }
+    }
+
+    // Counts body bytes as they arrive and ends the transfer on completion, error or cancellation
+    private static final class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final MeteredRequest request;
+
+        CountingSubscriber(HttpResponse.BodySubscriber<T> delegate, MeteredRequest request) {
+            this.delegate = delegate;
+            this.request = request;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    request.finish();
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            long bytes = 0;
+            for (ByteBuffer buffer : buffers) {
+                bytes += buffer.remaining();
+            }
+            request.received(bytes);
+            delegate.onNext(buffers);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            request.finish();
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            request.finish();
+            delegate.onComplete();
+        }
+    }
+
+    // Named like the SDK's operations so presigned and SDK requests share one set of tags
+    private static String operationOf(HttpRequest request) {
+        String query = request.uri().getRawQuery();
+        return switch (request.method()) {
+            case "PUT" -> query != null && query.contains("uploadId=") ? "UploadPart" : "PutObject";
+            case "GET" -> "GetObject";
+            default -> request.method();
+        };
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(Duration duration) throws InterruptedException {
+        return delegate.awaitTermination(duration);
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.excelfore.aws.awstask.metrics;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Feeds the SDK's own per-call metrics (HEAD, list, multipart control calls, deletes) into the same
+ * {@code awstask.s3.requests} timer and {@code awstask.s3.errors} counter as the presigned transfers.
+ * Every failed attempt is counted, including ones the SDK retried.
+ */
+@Component
+@RequiredArgsConstructor
+public class S3SdkMetricPublisher implements MetricPublisher {
+
+    private static final String ATTEMPT = "ApiCallAttempt";
+    private static final String THROTTLING = "Throttling";
+
+    private final TransferMetrics transferMetrics;
+
+    @Override
+    public void publish(MetricCollection metrics) {
+
+        String operation = first(metrics, CoreMetric.OPERATION_NAME).orElse("Unknown");
+        boolean successful = first(metrics, CoreMetric.API_CALL_SUCCESSFUL).orElse(false);
+
+        String status = TransferMetrics.CLIENT_ERROR;
+        String errorType = null;
+        for (MetricCollection attempt : metrics.children()) {
+            if (!ATTEMPT.equals(attempt.name())) {
+                continue;
+            }
+            Optional<Integer> statusCode = first(attempt, HttpMetric.HTTP_STATUS_CODE);
+            Optional<String> attemptError = first(attempt, CoreMetric.ERROR_TYPE);
+
+            status = statusCode.map(String::valueOf).orElse(TransferMetrics.CLIENT_ERROR);
+            errorType = attemptError.orElse(null);
+
+            if (attemptError.isPresent() || statusCode.filter(code -> code >= 400).isPresent()) {
+                boolean throttled = THROTTLING.equals(errorType) || statusCode.filter(TransferMetrics::isThrottled).isPresent();
+                transferMetrics.recordError(operation, status, throttled, first(attempt, CoreMetric.AWS_REQUEST_ID).orElse(null));
+            }
+        }
+
+        Duration duration = first(metrics, CoreMetric.API_CALL_DURATION).orElse(Duration.ZERO);
+        transferMetrics.recordSdkRequest(operation, status, successful ? "none" : Optional.ofNullable(errorType).orElse("Other"), duration);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static <T> Optional<T> first(MetricCollection metrics, SdkMetric<T> metric) {
+        List<T> values = metrics.metricValues(metric);
+        return values.isEmpty() ? Optional.empty() : Optional.of(values.get(0));
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.excelfore.aws.awstask.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The application's own meters for S3 work. Latency is recorded through the Observation API where the work runs
+ * in-process, so it also becomes a trace span once a tracing bridge is on the classpath.
+ * <ul>
+ *     <li>{@code awstask.operation}: local work in the request path, tagged {@code operation} (hash, presign)</li>
+ *     <li>{@code awstask.s3.requests}: every S3 request, presigned or through the SDK, by {@code operation} and {@code status}</li>
+ *     <li>{@code awstask.s3.errors}: failed S3 requests by {@code operation}, {@code status} and {@code throttled}</li>
+ *     <li>{@code awstask.s3.transfer.bytes} and {@code awstask.s3.transfers.active}: payload bytes and transfers in flight, by {@code direction}</li>
+ * </ul>
+ * S3 request IDs are unbounded, so they go on the span and into the debug log rather than onto a tag.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferMetrics {
+
+    static final String UPLOAD = "upload";
+    static final String DOWNLOAD = "download";
+
+    // No HTTP response at all (connect failure, timeout, reset), named as Spring's own HTTP client metrics do
+    static final String CLIENT_ERROR = "CLIENT_ERROR";
+
+    private static final String OPERATION_OBSERVATION = "awstask.operation";
+    private static final String REQUEST_OBSERVATION = "awstask.s3.requests";
+    private static final String ERRORS = "awstask.s3.errors";
+    private static final String TRANSFER_BYTES = "awstask.s3.transfer.bytes";
+    private static final String ACTIVE_TRANSFERS = "awstask.s3.transfers.active";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicInteger> activeTransfers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> transferBytes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerTransferMeters() {
+        for (String direction : new String[]{UPLOAD, DOWNLOAD}) {
+            activeTransfers.put(direction, meterRegistry.gauge(ACTIVE_TRANSFERS, Tags.of("direction", direction), new AtomicInteger()));
+            transferBytes.put(direction, Counter.builder(TRANSFER_BYTES)
+                    .tag("direction", direction)
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T> T observe(String operation, Supplier<T> call) {
+        return Observation.createNotStarted(OPERATION_OBSERVATION, observationRegistry)
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(call);
+    }
+
+    // Presigned transfers bypass the SDK, so the client that carries them is metered instead
+    public HttpClient instrument(HttpClient client) {
+        return new MeteredHttpClient(client, this);
+    }
+
+    Observation startRequest(String operation) {
+        return Observation.createNotStarted(REQUEST_OBSERVATION, observationRegistry)
+                .lowCardinalityKeyValue("operation", operation)
+                .start();
+    }
+
+    // Tags match what the observation handler puts on awstask.s3.requests, so both sources land in one timer
+    void recordSdkRequest(String operation, String status, String error, Duration duration) {
+        Timer.builder(REQUEST_OBSERVATION)
+                .tags("operation", operation, "status", status, "error", error)
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    void recordError(String operation, String status, boolean throttled, String requestId) {
+        Counter.builder(ERRORS)
+                .tags("operation", operation, "status", status, "throttled", String.valueOf(throttled))
+                .register(meterRegistry)
+                .increment();
+        log.debug("S3 request failed. Operation: {}, Status: {}, Throttled: {}, RequestId: {}", operation, status, throttled, requestId);
+    }
+
+    void transferStarted(String direction) {
+        activeTransfers.get(direction).incrementAndGet();
+    }
+
+    void transferFinished(String direction) {
+        activeTransfers.get(direction).decrementAndGet();
+    }
+
+    void recordBytes(String direction, long bytes) {
+        transferBytes.get(direction).increment(bytes);
+    }
+
+    static boolean isThrottled(int statusCode) {
+        return statusCode == 503 || statusCode == 429;
+    }
+
+}
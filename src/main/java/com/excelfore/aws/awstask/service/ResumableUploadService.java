@@ -0,0 +1,329 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.cache.UploadSessionStore;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.common.TransferAdmission;
+import com.excelfore.aws.awstask.dto.UploadSession;
+import com.excelfore.aws.awstask.dto.UploadSessionStatus;
+import com.excelfore.aws.awstask.exception.*;
+import com.excelfore.aws.awstask.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Resumable uploads on top of the presign/upload split: a session is opened with the presigned upload URL,
+ * backed by one S3 multipart upload, and parts are sent one request at a time in order. After a dropped
+ * connection the client asks for the session and continues from {@code nextPart}.
+ * <p>
+ * The SHA-256 of the content is built from the parts as they arrive, so completion needs no re-read. That
+ * running digest is in memory only; a session resumed after a restart is instead verified by reading the
+ * completed object back once, and deleted if it does not match its key.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private static final String FOLDER_NAME = "myBucket/";
+    private static final int MAX_PARTS = 10000;
+
+    private final CommonAWSOp commonAWSOp;
+    private final S3ServiceV2 s3ServiceV2;
+    private final S3Client s3Client;
+    private final UploadSessionStore sessionStore;
+    private final TransferAdmission transferAdmission;
+
+    private final Map<String, MessageDigest> runningDigests = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> sessionLocks = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.bucket}")
+    private String bucket;
+
+    @Value("${aws.s3.upload.max-file-size-mb:5120}")
+    private int maxFileSizeMb;
+
+    @Value("${aws.s3.resumable.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    public UploadSessionStatus startSession(String presignedUrl, long totalSize, String contentType) {
+
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        Map<String,String> urlData = commonAWSOp.extractFolderShaKeyAndObjName(presignedUrl);
+        final String shaKey = urlData.get("shaKey");
+        final String objName = urlData.get("objName");
+
+        if (!FileUtil.isSha256Hex(shaKey)) {
+            throw new InvalidDigestException("Presigned URL does not point at a content-addressed key");
+        }
+        // Parts go up with the service's credentials, so the URL must be one this service signed for the key
+        commonAWSOp.checkPresignedUploadUrl(presignedUrl, shaKey);
+        if (totalSize <= 0) {
+            throw new EmptyFileException("File is null or empty");
+        }
+        if (totalSize > FileUtil.mbToBytes(maxFileSizeMb)) {
+            throw new FileTooLargeException("File size exceeds " + maxFileSizeMb + "MB limit");
+        }
+
+        int partSize = commonAWSOp.getPartSizeBytes();
+        if ((totalSize + partSize - 1) / partSize > MAX_PARTS) {
+            throw new FileTooLargeException("File needs more than " + MAX_PARTS + " parts of " + partSize + " bytes");
+        }
+
+        if (s3ServiceV2.isKnownContent(shaKey, objName)) {
+            throw new FileAlreadyExistsException("File already exists with name: " + objName);
+        }
+
+        String uploadId = commonAWSOp.startMultipartUpload(objName, contentType);
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), objName, shaKey.toLowerCase(), uploadId,
+                contentType, totalSize, partSize, System.currentTimeMillis(), new ArrayList<>());
+        sessionStore.save(session);
+        runningDigests.put(session.getSessionId(), FileUtil.newSha256Digest());
+
+        log.debug("Resumable upload started. Session: {}, Key: {}, Parts: {}", session.getSessionId(), objName, session.totalParts());
+        return toStatus(session);
+    }
+
+    public UploadSessionStatus getStatus(String sessionId) {
+        return toStatus(requireSession(sessionId));
+    }
+
+    // declaredLength is the request's Content-Length, or -1 for a chunked body
+    public UploadSessionStatus uploadPart(String sessionId, int partNumber, InputStream body, long declaredLength) {
+
+        ReentrantLock lock = lockSession(sessionId);
+        try {
+            UploadSession session = requireLockedSession(sessionId, lock);
+            int expectedPart = session.getParts().size() + 1;
+
+            // A retried part that already landed is acknowledged, not uploaded twice
+            if (partNumber < expectedPart) {
+                return toStatus(session);
+            }
+            if (partNumber != expectedPart) {
+                throw new InvalidUploadPartException("Expected part " + expectedPart + " but received part " + partNumber);
+            }
+
+            long expectedLength = partNumber < session.totalParts()
+                    ? session.getPartSize()
+                    : session.getTotalSize() - (long) session.getPartSize() * (session.totalParts() - 1);
+            if (declaredLength >= 0 && declaredLength != expectedLength) {
+                throw new InvalidUploadPartException("Part " + partNumber + " must be " + expectedLength + " bytes");
+            }
+
+            // Never buffers more than the part size, whatever the client sends
+            byte[] content = body.readNBytes((int) expectedLength);
+            if (content.length != expectedLength || body.read() != -1) {
+                throw new InvalidUploadPartException("Part " + partNumber + " must be " + expectedLength + " bytes");
+            }
+
+            // Admitted by the size of the whole upload, so parts of a multi-GB file stay in the large lane
+            CompletedPart part;
+            try (TransferAdmission.Permit permit = transferAdmission.admitTransfer(session.getTotalSize())) {
+                permit.pace(content.length);
+                part = commonAWSOp.uploadPart(session.getKey(), session.getUploadId(), partNumber, content);
+            }
+
+            MessageDigest digest = runningDigests.get(sessionId);
+            if (digest != null) {
+                digest.update(content);
+            }
+
+            session.getParts().add(new UploadSession.UploadedPart(partNumber, part.eTag(), part.checksumSHA256()));
+            sessionStore.save(session);
+            return toStatus(session);
+
+        } catch (IOException e) {
+            log.error("I/O error during part upload. Session: {}, Message: {}", sessionId, e.getMessage());
+            throw new RuntimeException("Upload failed due to I/O error", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload interrupted", e);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String complete(String sessionId) {
+
+        ReentrantLock lock = lockSession(sessionId);
+        try {
+            UploadSession session = requireLockedSession(sessionId, lock);
+            if (session.getParts().size() != session.totalParts()) {
+                throw new InvalidUploadPartException("Upload is missing parts: received " + session.getParts().size()
+                        + " of " + session.totalParts());
+            }
+
+            MessageDigest digest = runningDigests.remove(sessionId);
+            if (digest != null && !FileUtil.toHex(digest.digest()).equals(session.getSha256())) {
+                discard(session);
+                throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
+            }
+
+            commonAWSOp.completeMultipartUpload(session.getKey(), session.getUploadId(), session.getParts().stream()
+                    .map(part -> CompletedPart.builder()
+                            .partNumber(part.getPartNumber())
+                            .eTag(part.getETag())
+                            .checksumSHA256(part.getChecksumSha256())
+                            .build())
+                    .toList());
+
+            if (digest == null) {
+                verifyCompletedObject(session);
+            }
+
+            s3ServiceV2.recordUploaded(session.getSha256(), session.getKey());
+            sessionStore.delete(sessionId);
+            sessionLocks.remove(sessionId);
+            log.debug("Resumable upload completed. Session: {}, Key: {}", sessionId, session.getKey());
+            return session.getKey();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void abort(String sessionId) {
+        discardLocked(sessionId);
+    }
+
+    // Sessions past their TTL, and S3 multipart uploads no session knows about, are aborted so their parts stop costing storage
+    @Scheduled(initialDelayString = "${aws.s3.resumable.gc-interval-ms:3600000}",
+               fixedDelayString = "${aws.s3.resumable.gc-interval-ms:3600000}")
+    public void collectStaleUploads() {
+
+        long cutoffMillis = System.currentTimeMillis() - sessionTtl.toMillis();
+        sessionStore.findAll().stream()
+                .filter(session -> session.getCreatedAt() < cutoffMillis)
+                .forEach(session -> {
+                    try {
+                        discardLocked(session.getSessionId());
+                    } catch (UploadSessionNotFoundException e) {
+                        log.debug("Stale session already finished. Session: {}", session.getSessionId());
+                    }
+                });
+
+        try {
+            Set<String> liveUploadIds = sessionStore.findAll().stream()
+                    .map(UploadSession::getUploadId)
+                    .collect(Collectors.toSet());
+
+            List<MultipartUpload> orphaned = commonAWSOp.listMultipartUploadsOlderThan(FOLDER_NAME, Instant.ofEpochMilli(cutoffMillis))
+                    .stream()
+                    .filter(upload -> !liveUploadIds.contains(upload.uploadId()))
+                    .toList();
+            orphaned.forEach(upload -> commonAWSOp.abortMultipartUpload(upload.key(), upload.uploadId()));
+
+            log.debug("Stale multipart uploads collected. Aborted: {}", orphaned.size());
+
+        } catch (SdkException e) {
+            log.warn("Failed to collect stale multipart uploads: {}", e.getMessage());
+        }
+    }
+
+    private void verifyCompletedObject(UploadSession session) {
+
+        MessageDigest digest = FileUtil.newSha256Digest();
+        try (ResponseInputStream<GetObjectResponse> object = s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(session.getKey())
+                .build());
+             DigestInputStream digestStream = new DigestInputStream(object, digest)) {
+
+            digestStream.transferTo(OutputStream.nullOutputStream());
+
+        } catch (IOException e) {
+            log.error("I/O error while verifying {}. Message: {}", session.getKey(), e.getMessage());
+            throw new RuntimeException("Failed to verify uploaded file", e);
+        }
+
+        if (!FileUtil.toHex(digest.digest()).equals(session.getSha256())) {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(session.getKey()).build());
+            commonAWSOp.recordDeleted(session.getKey());
+            sessionStore.delete(session.getSessionId());
+            throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
+        }
+    }
+
+    private void discard(UploadSession session) {
+        commonAWSOp.abortMultipartUpload(session.getKey(), session.getUploadId());
+        sessionStore.delete(session.getSessionId());
+        runningDigests.remove(session.getSessionId());
+        sessionLocks.remove(session.getSessionId());
+        log.debug("Resumable upload discarded. Session: {}, Key: {}", session.getSessionId(), session.getKey());
+    }
+
+    // Taken like complete takes it, so a part upload or completion in progress finishes before the abort
+    private void discardLocked(String sessionId) {
+        ReentrantLock lock = lockSession(sessionId);
+        try {
+            discard(requireLockedSession(sessionId, lock));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Unknown ids are rejected before a lock is created for them, so they cannot accumulate in sessionLocks
+    private ReentrantLock lockSession(String sessionId) {
+        requireSession(sessionId);
+        ReentrantLock lock = sessionLocks.computeIfAbsent(sessionId, id -> new ReentrantLock());
+        lock.lock();
+        return lock;
+    }
+
+    // Re-read under the lock; a session completed or discarded meanwhile takes its lock entry with it
+    private UploadSession requireLockedSession(String sessionId, ReentrantLock lock) {
+        Optional<UploadSession> session = sessionStore.find(sessionId);
+        if (session.isEmpty()) {
+            sessionLocks.remove(sessionId, lock);
+            throw new UploadSessionNotFoundException("No upload session with id: " + sessionId);
+        }
+        return session.get();
+    }
+
+    private UploadSession requireSession(String sessionId) {
+        return sessionStore.find(sessionId)
+                .orElseThrow(() -> new UploadSessionNotFoundException("No upload session with id: " + sessionId));
+    }
+
+    private static UploadSessionStatus toStatus(UploadSession session) {
+        int received = session.getParts().size();
+        return new UploadSessionStatus(
+                session.getSessionId(),
+                session.getKey(),
+                session.getTotalSize(),
+                session.getPartSize(),
+                session.totalParts(),
+                received,
+                received < session.totalParts() ? received + 1 : null
+        );
+    }
+
+}
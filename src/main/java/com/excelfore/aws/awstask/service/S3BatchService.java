@@ -0,0 +1,122 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.dto.BatchItemResult;
+import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
+import com.excelfore.aws.awstask.exception.InvalidBatchRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+
+/**
+ * Runs the single-item {@link S3ServiceV2} flows for many files or object names in one request. Items run
+ * concurrently (at most {@code aws.s3.batch.parallelism} at a time) and each gets its own result, so one
+ * bad item does not fail the others.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class S3BatchService {
+
+    private final S3ServiceV2 s3ServiceV2;
+    private final ExecutorService transferExecutor;
+
+    @Value("${aws.s3.batch.parallelism:8}")
+    private int parallelism;
+
+    @Value("${aws.s3.batch.max-items:1000}")
+    private int maxItems;
+
+    public List<BatchItemResult<PresignedUrlResponse>> getValidPresignedUrlsForUpload(List<MultipartFile> files) {
+        validateBatchSize(files);
+        return runBatch(files.size(),
+                index -> files.get(index).getOriginalFilename(),
+                index -> s3ServiceV2.getValidPresignedUrlForUpload(files.get(index)));
+    }
+
+    public List<BatchItemResult<String>> uploadFiles(List<MultipartFile> files, List<String> presignedUrls) {
+        validateBatchSize(files);
+        if (presignedUrls != null && presignedUrls.size() != files.size()) {
+            throw new InvalidBatchRequestException("Expected one presigned URL per file, got "
+                    + presignedUrls.size() + " URLs for " + files.size() + " files");
+        }
+
+        return runBatch(files.size(),
+                index -> files.get(index).getOriginalFilename(),
+                index -> {
+                    MultipartFile file = files.get(index);
+                    // Without a client-supplied URL the item is presigned here, saving the client a round-trip
+                    String presignedUrl = presignedUrls != null
+                            ? presignedUrls.get(index)
+                            : s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl();
+                    return s3ServiceV2.uploadFileWithPresign(file, presignedUrl);
+                });
+    }
+
+    public List<BatchItemResult<PresignedUrlResponse>> getValidPresignedUrlsForDownload(List<String> objectNames) {
+        validateBatchSize(objectNames);
+        return runBatch(objectNames.size(),
+                objectNames::get,
+                index -> s3ServiceV2.getValidPresignedUrlForDownload(objectNames.get(index)));
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidBatchRequestException("Batch must contain at least one item");
+        }
+        if (items.size() > maxItems) {
+            throw new InvalidBatchRequestException("Batch exceeds the limit of " + maxItems + " items");
+        }
+    }
+
+    private <T> List<BatchItemResult<T>> runBatch(int size, IntFunction<String> name, IntFunction<T> operation) {
+
+        // Permits are taken here, not inside the tasks: waiting items would otherwise hold executor threads
+        // that the running ones need (a fixed platform pool also runs part uploads and HttpClient callbacks)
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<BatchItemResult<T>>> futures = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            String itemName = name.apply(index);
+            try {
+                permits.acquire();
+
+            } catch (InterruptedException e) {
+                // Stays interrupted, so every remaining item fails the same way without waiting
+                Thread.currentThread().interrupt();
+                futures.add(CompletableFuture.completedFuture(BatchItemResult.failure(itemName, e)));
+                continue;
+            }
+
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return BatchItemResult.success(itemName, operation.apply(index));
+
+                } catch (RuntimeException e) {
+                    log.debug("Batch item {} failed. Error: {}, Message: {}", itemName, e.getClass().getSimpleName(), e.getMessage());
+                    return BatchItemResult.failure(itemName, e);
+
+                } finally {
+                    permits.release();
+                }
+            }, transferExecutor));
+        }
+
+        List<BatchItemResult<T>> results = futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+
+        log.debug("Batch finished. Items: {}, Failed: {}", size, results.stream().filter(result -> result.getError() != null).count());
+        return results;
+    }
+
+}
@@ -1,8 +1,17 @@
 package com.excelfore.aws.awstask.service;
 
+import com.excelfore.aws.awstask.cache.ContentDigestIndex;
+import com.excelfore.aws.awstask.cache.ObjectKeyIndex;
 import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.common.ContentCompression;
+import com.excelfore.aws.awstask.common.TransferAdmission;
+import com.excelfore.aws.awstask.dto.BulkKeyResult;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectKeyPage;
+import com.excelfore.aws.awstask.dto.ObjectStream;
 import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
 import com.excelfore.aws.awstask.exception.*;
+import com.excelfore.aws.awstask.metrics.TransferMetrics;
 import com.excelfore.aws.awstask.util.FileUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,9 +22,21 @@ import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -24,119 +45,406 @@ public class S3ServiceV2 {
 
     private final S3Client s3Client;
     private final CommonAWSOp commonAWSOp;
+    private final ObjectKeyIndex objectKeyIndex;
+    private final ExecutorService transferExecutor;
+    private final ContentDigestIndex contentDigestIndex;
+    private final TransferMetrics transferMetrics;
+    private final TransferAdmission transferAdmission;
+    private final ContentCompression contentCompression;
 
     private static final String FOLDER_NAME = "myBucket/";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DELETE_BATCH_SIZE = 1000;
 
     @Value("${aws.s3.bucket}")
     private String bucket;
 
+    @Value("${aws.s3.upload.max-file-size-mb:5120}")
+    private int maxFileSizeMb;
+
+    @Value("${aws.s3.multipart.threshold-mb:5}")
+    private int multipartThresholdMb;
+
+    @Value("${aws.s3.bulk.max-keys:100000}")
+    private int bulkMaxKeys;
+
+    @Value("${aws.s3.bulk.delete-parallelism:4}")
+    private int deleteParallelism;
+
+    @Value("${aws.s3.bulk.list-min-keys-per-page:10}")
+    private int bulkListMinKeysPerPage;
+
     public List<String> listOfObjectKeyName(Optional<String> startWith, Optional<String> endWith) {
+
+        Optional<List<String>> indexedKeys = objectKeyIndex.find(startWith, endWith);
+        if (indexedKeys.isPresent()) {
+            log.debug("S3 list answered from key index - Prefix: '{}', Suffix: '{}', Returned: {}",
+                    startWith.orElse(""), endWith.orElse(""), indexedKeys.get().size());
+            return indexedKeys.get();
+        }
+
+        List<String> keys;
+        try (Stream<String> keyStream = streamObjectKeyNames(startWith, endWith)) {
+            keys = keyStream.toList();
+        }
+
+        log.debug("S3 list filtered - Prefix: '{}', Suffix: '{}', Returned: {}",
+                startWith.orElse(""), endWith.orElse(""), keys.size());
+
+        return keys;
+    }
+
+    // Lazily walks every page via the paginator; only the current page is held in memory
+    public Stream<String> streamObjectKeyNames(Optional<String> startWith, Optional<String> endWith) {
         // Build request with prefix if available
         ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
                 .bucket(bucket);
 
         startWith.ifPresent(requestBuilder::prefix);
 
+        return s3Client.listObjectsV2Paginator(requestBuilder.build())
+                .contents()
+                .stream()
+                .map(S3Object::key)
+                .filter(key -> endWith.map(key::endsWith).orElse(true));
+    }
+
+    public ObjectKeyPage listObjectKeyPage(Optional<String> startWith, Optional<String> endWith,
+                                           int pageSize, Optional<String> cursor) {
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidListRequestException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .maxKeys(pageSize);
+
+        startWith.ifPresent(requestBuilder::prefix);
+        cursor.map(FileUtil::decodeListCursor).ifPresent(requestBuilder::continuationToken);
+
         ListObjectsV2Response response = s3Client.listObjectsV2(requestBuilder.build());
 
+        // The suffix filter runs per page, so a page may hold fewer than pageSize keys
         List<String> keys = response.contents().stream()
                 .map(S3Object::key)
                 .filter(key -> endWith.map(key::endsWith).orElse(true))
                 .toList();
 
-        log.debug("S3 list filtered - Prefix: '{}', Suffix: '{}', Returned: {}",
-                startWith.orElse(""), endWith.orElse(""), keys.size());
+        boolean truncated = Boolean.TRUE.equals(response.isTruncated());
+        String nextCursor = truncated ? FileUtil.encodeListCursor(response.nextContinuationToken()) : null;
 
-        return keys;
+        log.debug("S3 list page - Prefix: '{}', Suffix: '{}', Returned: {}, Truncated: {}",
+                startWith.orElse(""), endWith.orElse(""), keys.size(), truncated);
+
+        return new ObjectKeyPage(keys, nextCursor, truncated);
     }
 
     public PresignedUrlResponse getValidPresignedUrlForUpload(MultipartFile file) {
 
-        if (file.isEmpty() || file.getSize()==0){
-           throw new EmptyFileException("File is null or empty");
-        }
+        FileUtil.validateUploadFile(file, maxFileSizeMb);
 
-        if (file.getSize() > FileUtil.mbToBytes(1)) {
-            throw new FileTooLargeException("File size exceeds 1MB limit");
+        // Hashing reads the whole file, so this is admitted by size like the upload itself
+        try (TransferAdmission.Permit permit = transferAdmission.admitTransfer(file.getSize())) {
+            String hashHex = transferMetrics.observe("hash", () -> FileUtil.computeSHA256Hash(file));
+            return presignUpload(hashHex);
         }
+    }
+
+    // The client's digest is trusted only for naming the key; the upload step re-hashes the content against it
+    public PresignedUrlResponse getValidPresignedUrlForUpload(String sha256Hex) {
 
-        String originalFileName = file.getOriginalFilename();
+        if (!FileUtil.isSha256Hex(sha256Hex)) {
+            throw new InvalidDigestException("Expected a hex-encoded SHA-256 digest of 64 characters");
+        }
 
-        assert originalFileName != null;
-        if (!FileUtil.isFileNameValid(originalFileName)) {
-            throw new InvalidFileNameException("Filename must contain at least one letter before the extension"); // checked
+        try (TransferAdmission.Permit permit = transferAdmission.admitPresign()) {
+            return presignUpload(sha256Hex.toLowerCase());
         }
+    }
 
-        String hashHex = FileUtil.computeSHA256Hash(file);
+    private PresignedUrlResponse presignUpload(String hashHex) {
 
         String key = FOLDER_NAME + hashHex;
         log.debug("Generated S3 object key: {}", key);
 
-        if (commonAWSOp.doesObjectExists(key)) {
+        if (isKnownContent(hashHex, key)) {
             throw new FileAlreadyExistsException("File already exists with name: " + key);
         }
 
-        String url = commonAWSOp.generatePresignedUrl(key, true);
+        String url = commonAWSOp.generatePresignedUploadUrl(key, hashHex);
         return new PresignedUrlResponse(
                 "Upload",
                 url,
-                "5Min",
+                FileUtil.expirationLabel(url),
                 true
         );
 
     }
 
     public String uploadFileWithPresign(MultipartFile file, String presignedUrl) {
-        String currentFileHash = FileUtil.computeSHA256Hash(file);
 
-        Map<String,String> urlData = FileUtil.extractFolderShaKeyAndObjName(presignedUrl);
+        // A URL from the digest route was issued without seeing the file, so its rules are applied here
+        FileUtil.validateUploadFile(file, maxFileSizeMb);
+
+        // The multipart path never sends the URL itself, so its expiry is enforced here for both paths
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        try (TransferAdmission.Permit permit = transferAdmission.admitTransfer(file.getSize())) {
+            return upload(permit.shape(file), presignedUrl);
+        }
+    }
+
+    private String upload(MultipartFile file, String presignedUrl) {
+
+        Map<String,String> urlData = commonAWSOp.extractFolderShaKeyAndObjName(presignedUrl);
         final String shaKey = urlData.get("shaKey");
         final String objName = urlData.get("objName");
 
+        if (isKnownContent(shaKey, objName)) {
+            throw new FileAlreadyExistsException("File already exists with name: " + objName);
+        }
+
+        if (contentCompression.shouldCompress(file)) {
+            // Hashed over the original bytes while the compressed ones stream out; S3 never sees the URL either way
+            commonAWSOp.checkPresignedUploadUrl(presignedUrl, shaKey);
+            commonAWSOp.uploadFileCompressed(file, objName, shaKey);
+            recordUploaded(shaKey, objName);
+            return objName;
+        }
+
+        if (file.getSize() > FileUtil.mbToBytes(multipartThresholdMb)) {
+            // Hashed while the parts stream out; a mismatch aborts the multipart upload before completion
+            commonAWSOp.checkPresignedUploadUrl(presignedUrl, shaKey);
+            commonAWSOp.uploadFileWithMultipart(file, objName, shaKey);
+            recordUploaded(shaKey, objName);
+            return objName;
+        }
+
+        if (commonAWSOp.isChecksumEnabled()) {
+            // The URL carries the signed checksum, so S3 verifies the body and the local re-hash is skipped
+            commonAWSOp.uploadFileWithChecksum(file, shaKey, presignedUrl);
+            recordUploaded(shaKey, objName);
+            return objName;
+        }
+
+        byte[] content = readContent(file);
+        String currentFileHash = transferMetrics.observe("hash", () -> FileUtil.computeSHA256Hash(content));
+
         if (!currentFileHash.equalsIgnoreCase(shaKey)) {
             log.debug("mismatch");
             throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
         }
 
-        if (commonAWSOp.doesObjectExists(objName)) {
-            throw new FileAlreadyExistsException("File already exists with name: " + objName);
+        commonAWSOp.uploadFileWithPresignedUrl(content, file.getContentType(), presignedUrl);
+        recordUploaded(shaKey, objName);
+
+        return objName;
+    }
+
+    // The local digest index answers duplicates without S3; a HEAD hit is remembered there for next time
+    boolean isKnownContent(String hashHex, String key) {
+        if (contentDigestIndex.contains(hashHex)) {
+            log.debug("Duplicate content answered from digest index: {}", key);
+            return true;
+        }
+        if (commonAWSOp.doesObjectExists(key)) {
+            contentDigestIndex.record(hashHex);
+            return true;
         }
+        return false;
+    }
 
-        commonAWSOp.uploadFileWithPresignedUrl(file, presignedUrl);
+    void recordUploaded(String hashHex, String key) {
+        commonAWSOp.recordUploaded(key);
+        contentDigestIndex.record(hashHex);
+    }
 
-        return objName;
+    private byte[] readContent(MultipartFile file) {
+        try {
+            return file.getBytes();
+
+        } catch (IOException e) {
+            log.error("IOException while reading file: {}", e.getMessage());
+            throw new RuntimeException("Failed to read uploaded file", e);
+        }
     }
 
     public PresignedUrlResponse getValidPresignedUrlForDownload(String objectName) {
 
-        if (!commonAWSOp.doesObjectExists(objectName)) {
-            log.debug("File Not Exist There With Name {}", objectName);
-            throw new FileAlreadyExistsException("File Not Present There with name: " + objectName);
-        }
+        String url;
+        try (TransferAdmission.Permit permit = transferAdmission.admitPresign()) {
+            if (!commonAWSOp.doesObjectExists(objectName)) {
+                log.debug("File Not Exist There With Name {}", objectName);
+                throw new FileAlreadyExistsException("File Not Present There with name: " + objectName);
+            }
 
-        String url = commonAWSOp.generatePresignedUrl(objectName, false);
+            url = commonAWSOp.generatePresignedUrl(objectName, false);
+        }
 
         return new PresignedUrlResponse(
                 "Download",
                 url,
-                "5Min",
+                FileUtil.expirationLabel(url),
                 true
         );
 
     }
 
-    public byte[] downloadFileWithPresign(String presignedUrl) {
+    public ObjectStream downloadFileWithPresign(String presignedUrl, DownloadConditions conditions) {
 
-        Map<String,String> urlData = FileUtil.extractFolderShaKeyAndObjName(presignedUrl);
+        Map<String,String> urlData = commonAWSOp.extractFolderShaKeyAndObjName(presignedUrl);
         final String objName = urlData.get("objName");
+        log.debug("Downloading object: {}", objName);
 
         if (!commonAWSOp.doesObjectExists(objName)) {
             log.debug("File Already There With Name {}", objName);
             throw new NoSuchFilePresent("File Not exists with name: " + objName);
         }
 
-        return commonAWSOp.downloadFileWithPresignedUrl(presignedUrl);
+        // The permit stays with the body until the response is written; cache hits and 304s give it back at once
+        TransferAdmission.Permit permit = transferAdmission.admitTransfer(downloadSize(objName));
+        try {
+            return permit.holdUntilClosed(commonAWSOp.streamFileWithPresignedUrl(presignedUrl, objName, conditions));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+
+    }
+
+    // Only needed to pick the lane, so the HEAD is skipped while admission is off
+    private long downloadSize(String key) {
+        if (!transferAdmission.isEnabled()) {
+            return 0;
+        }
+        return commonAWSOp.headObject(key).map(HeadObjectResponse::contentLength).orElse(0L);
+    }
+
+    // Callers run validateBulkSize first, before a streamed response is committed
+    public void checkObjectsExist(Collection<String> keys, Consumer<BulkKeyResult> results) {
+
+        // How often each key was requested, so a repeated key still gets one line per request
+        TreeMap<String, Integer> folderKeys = new TreeMap<>();
+        for (String key : keys) {
+            if (key.startsWith(FOLDER_NAME)) {
+                folderKeys.merge(key, 1, Integer::sum);
+            } else {
+                // Outside the shared prefix a listing would not be bounded, so these fall back to HEAD
+                results.accept(headExistence(key));
+            }
+        }
+
+        // Every page starts just before the next unanswered key, so gaps between requested keys are never listed.
+        // A page that answers only a few keys means they are sparse in the bucket, and (cached) HEADs are cheaper
+        int pages = 0;
+        while (!folderKeys.isEmpty()) {
+            String first = folderKeys.firstKey();
+            ListObjectsV2Response page = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                    .bucket(bucket)
+                    .prefix(FOLDER_NAME)
+                    .startAfter(first.substring(0, first.length() - 1))
+                    .maxKeys(MAX_PAGE_SIZE)
+                    .build());
+            pages++;
+
+            Set<String> listed = new HashSet<>();
+            page.contents().forEach(object -> listed.add(object.key()));
+
+            // A complete page reached the end of the prefix, so it answers every remaining key
+            boolean complete = !Boolean.TRUE.equals(page.isTruncated()) || page.contents().isEmpty();
+            Map<String, Integer> answerable = complete
+                    ? folderKeys
+                    : folderKeys.headMap(page.contents().get(page.contents().size() - 1).key(), true);
+
+            int answered = answerable.size();
+            Iterator<Map.Entry<String, Integer>> pending = answerable.entrySet().iterator();
+            while (pending.hasNext()) {
+                Map.Entry<String, Integer> entry = pending.next();
+                emit(results, entry.getKey(), listed.contains(entry.getKey()), entry.getValue());
+                pending.remove();
+            }
+
+            if (answered < Math.max(1, bulkListMinKeysPerPage)) {
+                break;
+            }
+        }
+
+        folderKeys.forEach((key, count) -> emit(results, key, commonAWSOp.doesObjectExists(key), count));
+
+        log.debug("Bulk existence check finished. Keys: {}, List pages: {}", keys.size(), pages);
+    }
+
+    private BulkKeyResult headExistence(String key) {
+        return new BulkKeyResult(key, commonAWSOp.doesObjectExists(key)
+                ? BulkKeyResult.Status.EXISTS : BulkKeyResult.Status.MISSING);
+    }
 
+    private static void emit(Consumer<BulkKeyResult> results, String key, boolean exists, int count) {
+        for (int i = 0; i < count; i++) {
+            results.accept(new BulkKeyResult(key, exists ? BulkKeyResult.Status.EXISTS : BulkKeyResult.Status.MISSING));
+        }
+    }
+
+    // Callers run validateBulkSize first, before a streamed response is committed
+    public void deleteObjects(Collection<String> keys, Consumer<BulkKeyResult> results) {
+
+        List<String> distinctKeys = keys.stream().distinct().toList();
+        Semaphore permits = new Semaphore(deleteParallelism);
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+
+        for (int from = 0; from < distinctKeys.size(); from += DELETE_BATCH_SIZE) {
+            List<String> batch = distinctKeys.subList(from, Math.min(from + DELETE_BATCH_SIZE, distinctKeys.size()));
+            // Taken before submitting, so waiting batches do not hold executor threads
+            permits.acquireUninterruptibly();
+            batches.add(CompletableFuture.runAsync(() -> {
+                try {
+                    deleteBatch(batch, results);
+                } finally {
+                    permits.release();
+                }
+            }, transferExecutor));
+        }
+
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        log.debug("Bulk delete finished. Keys: {}, Batches: {}", distinctKeys.size(), batches.size());
+    }
+
+    private void deleteBatch(List<String> batch, Consumer<BulkKeyResult> results) {
+        try {
+            DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucket)
+                    .delete(Delete.builder()
+                            .objects(batch.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                            .quiet(false)
+                            .build())
+                    .build());
+
+            for (DeletedObject deleted : response.deleted()) {
+                commonAWSOp.recordDeleted(deleted.key());
+                if (deleted.key().startsWith(FOLDER_NAME)) {
+                    contentDigestIndex.remove(deleted.key().substring(FOLDER_NAME.length()));
+                }
+                results.accept(new BulkKeyResult(deleted.key(), BulkKeyResult.Status.DELETED));
+            }
+            for (S3Error error : response.errors()) {
+                results.accept(new BulkKeyResult(error.key(), BulkKeyResult.Status.FAILED, error.code() + ": " + error.message()));
+            }
+
+        } catch (S3Exception e) {
+            log.error("DeleteObjects failed. Keys: {}, StatusCode: {}, RequestId: {}", batch.size(), e.statusCode(), e.requestId());
+            String message = "S3 error: " + e.awsErrorDetails().errorMessage();
+            batch.forEach(key -> results.accept(new BulkKeyResult(key, BulkKeyResult.Status.FAILED, message)));
+        }
+    }
+
+    public void validateBulkSize(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            throw new InvalidBatchRequestException("At least one key is required");
+        }
+        if (keys.size() > bulkMaxKeys) {
+            throw new InvalidBatchRequestException("Request exceeds the limit of " + bulkMaxKeys + " keys");
+        }
     }
 
 }
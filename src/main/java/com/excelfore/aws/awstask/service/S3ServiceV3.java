@@ -0,0 +1,259 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.cache.ContentDigestIndex;
+import com.excelfore.aws.awstask.cache.ObjectKeyIndex;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.common.ContentCompression;
+import com.excelfore.aws.awstask.common.TransferAdmission;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.dto.ObjectStream;
+import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
+import com.excelfore.aws.awstask.exception.*;
+import com.excelfore.aws.awstask.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link S3ServiceV2}. S3 calls go through {@link S3AsyncClient} and the
+ * presigned transfers through the async HttpClient API, so no request thread waits on S3. CPU-bound
+ * hashing and the (blocking) multipart path run on the virtual-thread transfer executor.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class S3ServiceV3 {
+
+    private final S3AsyncClient s3AsyncClient;
+    private final CommonAWSOp commonAWSOp;
+    private final ExecutorService transferExecutor;
+    private final ObjectKeyIndex objectKeyIndex;
+    private final ContentDigestIndex contentDigestIndex;
+    private final TransferAdmission transferAdmission;
+    private final ContentCompression contentCompression;
+
+    private static final String FOLDER_NAME = "myBucket/";
+
+    @Value("${aws.s3.bucket}")
+    private String bucket;
+
+    @Value("${aws.s3.upload.max-file-size-mb:5120}")
+    private int maxFileSizeMb;
+
+    @Value("${aws.s3.multipart.threshold-mb:5}")
+    private int multipartThresholdMb;
+
+    public CompletableFuture<List<String>> listOfObjectKeyName(Optional<String> startWith, Optional<String> endWith) {
+        ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+                .bucket(bucket);
+
+        Optional<List<String>> indexedKeys = objectKeyIndex.find(startWith, endWith);
+        if (indexedKeys.isPresent()) {
+            return CompletableFuture.completedFuture(indexedKeys.get());
+        }
+
+        startWith.ifPresent(requestBuilder::prefix);
+
+        // Pages are requested one at a time as the subscriber consumes them
+        List<String> keys = new ArrayList<>();
+        return s3AsyncClient.listObjectsV2Paginator(requestBuilder.build())
+                .contents()
+                .subscribe(object -> {
+                    if (endWith.map(object.key()::endsWith).orElse(true)) {
+                        keys.add(object.key());
+                    }
+                })
+                .thenApply(ignored -> {
+                    log.debug("S3 async list filtered - Prefix: '{}', Suffix: '{}', Returned: {}",
+                            startWith.orElse(""), endWith.orElse(""), keys.size());
+                    return keys;
+                });
+    }
+
+    public CompletableFuture<PresignedUrlResponse> getValidPresignedUrlForUpload(MultipartFile file) {
+
+        FileUtil.validateUploadFile(file, maxFileSizeMb);
+
+        return whenAdmitted(() -> transferAdmission.admitTransfer(file.getSize()), permit -> CompletableFuture.supplyAsync(() -> FileUtil.computeSHA256Hash(file), transferExecutor)
+                .thenCompose(hashHex -> isKnownContentAsync(hashHex, FOLDER_NAME + hashHex)
+                        .thenApply(exists -> {
+                            String key = FOLDER_NAME + hashHex;
+                            log.debug("Generated S3 object key: {}", key);
+                            if (exists) {
+                                throw new FileAlreadyExistsException("File already exists with name: " + key);
+                            }
+
+                            String url = commonAWSOp.generatePresignedUploadUrl(key, hashHex);
+                            return new PresignedUrlResponse(
+                                    "Upload",
+                                    url,
+                                    FileUtil.expirationLabel(url),
+                                    true
+                            );
+                        })));
+    }
+
+    public CompletableFuture<String> uploadFileWithPresign(MultipartFile file, String presignedUrl) {
+
+        FileUtil.validateUploadFile(file, maxFileSizeMb);
+        FileUtil.checkPresignedUrlNotExpired(presignedUrl);
+
+        Map<String,String> urlData = commonAWSOp.extractFolderShaKeyAndObjName(presignedUrl);
+        final String shaKey = urlData.get("shaKey");
+        final String objName = urlData.get("objName");
+
+        return whenAdmitted(() -> transferAdmission.admitTransfer(file.getSize()),
+                permit -> upload(permit.shape(file), presignedUrl, shaKey, objName));
+    }
+
+    private CompletableFuture<String> upload(MultipartFile file, String presignedUrl, String shaKey, String objName) {
+
+        // Sniffing reads the start of the file, so it happens here rather than on an SDK thread
+        boolean compress = contentCompression.shouldCompress(file);
+
+        return isKnownContentAsync(shaKey, objName)
+                .thenCompose(exists -> {
+                    if (exists) {
+                        throw new FileAlreadyExistsException("File already exists with name: " + objName);
+                    }
+
+                    if (compress) {
+                        return CompletableFuture.runAsync(() -> {
+                            commonAWSOp.checkPresignedUploadUrl(presignedUrl, shaKey);
+                            commonAWSOp.uploadFileCompressed(file, objName, shaKey);
+                        }, transferExecutor);
+                    }
+
+                    if (file.getSize() > FileUtil.mbToBytes(multipartThresholdMb)) {
+                        // Multipart streaming reads the spooled file, so it runs on a virtual thread
+                        return CompletableFuture.runAsync(() -> {
+                            commonAWSOp.checkPresignedUploadUrl(presignedUrl, shaKey);
+                            commonAWSOp.uploadFileWithMultipart(file, objName, shaKey);
+                        }, transferExecutor);
+                    }
+
+                    if (commonAWSOp.isChecksumEnabled()) {
+                        return commonAWSOp.uploadFileWithChecksumAsync(file, shaKey, presignedUrl);
+                    }
+
+                    return CompletableFuture.supplyAsync(() -> readContent(file), transferExecutor)
+                            .thenCompose(content -> {
+                                if (!FileUtil.computeSHA256Hash(content).equalsIgnoreCase(shaKey)) {
+                                    log.debug("mismatch");
+                                    throw new HashMismatchException("Hash mismatch — please upload the original file used to generate the URL.");
+                                }
+                                return commonAWSOp.uploadFileWithPresignedUrlAsync(content, file.getContentType(), presignedUrl);
+                            });
+                })
+                .thenApply(ignored -> {
+                    commonAWSOp.recordUploaded(objName);
+                    contentDigestIndex.record(shaKey);
+                    return objName;
+                });
+    }
+
+    private CompletableFuture<Boolean> isKnownContentAsync(String hashHex, String key) {
+        if (contentDigestIndex.contains(hashHex)) {
+            log.debug("Duplicate content answered from digest index: {}", key);
+            return CompletableFuture.completedFuture(true);
+        }
+        return commonAWSOp.doesObjectExistsAsync(key)
+                .thenApply(exists -> {
+                    if (exists) {
+                        contentDigestIndex.record(hashHex);
+                    }
+                    return exists;
+                });
+    }
+
+    private byte[] readContent(MultipartFile file) {
+        try {
+            return file.getBytes();
+
+        } catch (IOException e) {
+            log.error("IOException while reading file: {}", e.getMessage());
+            throw new UncheckedIOException("Failed to read uploaded file", e);
+        }
+    }
+
+    public CompletableFuture<PresignedUrlResponse> getValidPresignedUrlForDownload(String objectName) {
+
+        return whenAdmitted(transferAdmission::admitPresign, permit -> commonAWSOp.doesObjectExistsAsync(objectName)
+                .thenApply(exists -> {
+                    if (!exists) {
+                        log.debug("File Not Exist There With Name {}", objectName);
+                        throw new FileAlreadyExistsException("File Not Present There with name: " + objectName);
+                    }
+
+                    String url = commonAWSOp.generatePresignedUrl(objectName, false);
+                    return new PresignedUrlResponse(
+                            "Download",
+                            url,
+                            FileUtil.expirationLabel(url),
+                            true
+                    );
+                }));
+    }
+
+    public CompletableFuture<ObjectStream> downloadFileWithPresign(String presignedUrl, DownloadConditions conditions) {
+
+        Map<String,String> urlData = commonAWSOp.extractFolderShaKeyAndObjName(presignedUrl);
+        final String objName = urlData.get("objName");
+
+        // Admission may wait for a permit, so it runs on the transfer executor rather than an SDK thread
+        return commonAWSOp.doesObjectExistsAsync(objName)
+                .thenComposeAsync(exists -> {
+                    if (!exists) {
+                        log.debug("File Already There With Name {}", objName);
+                        throw new NoSuchFilePresent("File Not exists with name: " + objName);
+                    }
+                    TransferAdmission.Permit permit = transferAdmission.admitTransfer(downloadSize(objName));
+                    return commonAWSOp.streamFileWithPresignedUrlAsync(presignedUrl, objName, conditions)
+                            .whenComplete((object, e) -> {
+                                if (e != null) {
+                                    permit.close();
+                                }
+                            })
+                            .thenApply(permit::holdUntilClosed);
+                }, transferExecutor);
+    }
+
+    private long downloadSize(String key) {
+        if (!transferAdmission.isEnabled()) {
+            return 0;
+        }
+        return commonAWSOp.headObject(key).map(HeadObjectResponse::contentLength).orElse(0L);
+    }
+
+    // Admission may wait up to max-wait for a permit, so it runs on the transfer executor rather than the request
+    // thread. The permit is held until the chain settles; a failure while building it gives the permit straight back
+    private <T> CompletableFuture<T> whenAdmitted(Supplier<TransferAdmission.Permit> admission,
+                                                  Function<TransferAdmission.Permit, CompletableFuture<T>> work) {
+        return CompletableFuture.supplyAsync(admission, transferExecutor)
+                .thenCompose(permit -> {
+                    try {
+                        return work.apply(permit).whenComplete((result, e) -> permit.close());
+                    } catch (RuntimeException e) {
+                        permit.close();
+                        throw e;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.excelfore.aws.awstask.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+// Content-Encoding values stored on objects; gzip is the only coding this service writes or decodes
+public final class ContentCoding {
+
+    public static final String GZIP = "gzip";
+
+    private static final int DECODE_BUFFER_BYTES = 64 * 1024;
+
+    private ContentCoding() {
+        throw new AssertionError("Utility class - do not instantiate");
+    }
+
+    public static boolean isGzip(String contentEncoding) {
+        return contentEncoding != null && contentEncoding.trim().equalsIgnoreCase(GZIP);
+    }
+
+    public static InputStream decode(InputStream inputStream, String contentEncoding) throws IOException {
+        return isGzip(contentEncoding) ? new GZIPInputStream(inputStream, DECODE_BUFFER_BYTES) : inputStream;
+    }
+
+    // True when an Accept-Encoding header lists the coding (or *) without q=0
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase(coding) && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    refused = param.substring(2).trim().matches("0(\\.0*)?");
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
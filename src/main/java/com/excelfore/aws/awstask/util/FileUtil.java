@@ -1,97 +1,277 @@
-package com.excelfore.aws.awstask.util;
-
-import com.excelfore.aws.awstask.exception.HashAlgorithmNotFoundException;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
-import java.util.Map;
-
-@Slf4j
-public class FileUtil {
-
-    private FileUtil() {
-        // Prevent instantiation
-        throw new AssertionError("Utility class - do not instantiate");
-    }
-
-    private static final String HASH_ALGORITHM = "SHA-256";
-
-    public static String getHashAlgorithmName() {
-        return HASH_ALGORITHM;
-    }
-
-    public static long mbToBytes(int mb) {
-        return mb * 1024L * 1024L;
-    }
-
-    public static boolean isFileNameValid(String originalFileName) {
-        int dotIndex = originalFileName.lastIndexOf('.');
-
-        return dotIndex > 0 && originalFileName.substring(0, dotIndex).matches(".*[a-zA-Z].*");
-    }
-
-    public static String computeSHA256Hash(MultipartFile file) {
-        try (InputStream inputStream = file.getInputStream()) {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
-            }
-
-            byte[] hashBytes = digest.digest();
-
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-
-            return sb.toString();
-
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Hash algorithm not found: {}", e.getMessage());
-            throw new HashAlgorithmNotFoundException("SHA-256 algorithm not available");
-
-        } catch (IOException e) {
-            log.error("IOException while reading file: {}", e.getMessage());
-            throw new RuntimeException("Failed to read uploaded file", e);
-        }
-    }
-
-
-    public static Map<String, String> extractFolderShaKeyAndObjName(String presignedUrl) {
-        URI uri = URI.create(presignedUrl);
-
-        String path = uri.getPath(); // e.g. /myBucket/646d4fdf4sdf45dv
-
-        // Remove leading slash
-        if (path.startsWith("/")) {
-            path = path.substring(1);
-        }
-
-        // Split into folderName and shaKey
-        String[] parts = path.split("/", 2); // Split into folderName and shaKey
-        if (parts.length < 2) {
-            throw new IllegalArgumentException("Invalid path format: " + path);
-        }
-
-        // Create the map to store folderName, shaKey, and objName
-        Map<String, String> result = new HashMap<>();
-        result.put("folderName", parts[0]);   // first part is folder
-        result.put("shaKey", parts[1]);       // second part is shaKey
-
-        // Construct objName by combining folderName and shaKey
-        result.put("objName", parts[0] + "/" + parts[1]);
-
-        return result;
-    }
-
-
-}
+package com.excelfore.aws.awstask.util;
+
+import com.excelfore.aws.awstask.exception.EmptyFileException;
+import com.excelfore.aws.awstask.exception.FileTooLargeException;
+import com.excelfore.aws.awstask.exception.HashAlgorithmNotFoundException;
+import com.excelfore.aws.awstask.exception.InvalidFileNameException;
+import com.excelfore.aws.awstask.exception.InvalidListRequestException;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+@Slf4j
+public class FileUtil {
+
+    private FileUtil() {
+        // Prevent instantiation
+        throw new AssertionError("Utility class - do not instantiate");
+    }
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // Digests and read buffers are pooled rather than thread-local: virtual threads are never reused,
+    // so a ThreadLocal would allocate a fresh instance on every request anyway
+    private static final int POOL_SIZE = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int HASH_BUFFER_BYTES = 256 * 1024;
+
+    private static final MessageDigest SHA256_PROTOTYPE = lookupSha256Digest();
+    private static final Queue<MessageDigest> DIGEST_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final Queue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final DateTimeFormatter AMZ_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    public static String getHashAlgorithmName() {
+        return HASH_ALGORITHM;
+    }
+
+    public static long mbToBytes(int mb) {
+        return mb * 1024L * 1024L;
+    }
+
+    public static boolean isFileNameValid(String originalFileName) {
+        int dotIndex = originalFileName.lastIndexOf('.');
+
+        return dotIndex > 0 && originalFileName.substring(0, dotIndex).matches(".*[a-zA-Z].*");
+    }
+
+    public static void validateUploadFile(MultipartFile file, int maxFileSizeMb) {
+
+        if (file.isEmpty() || file.getSize()==0){
+           throw new EmptyFileException("File is null or empty");
+        }
+
+        if (file.getSize() > mbToBytes(maxFileSizeMb)) {
+            throw new FileTooLargeException("File size exceeds " + maxFileSizeMb + "MB limit");
+        }
+
+        String originalFileName = file.getOriginalFilename();
+
+        if (originalFileName == null || !isFileNameValid(originalFileName)) {
+            throw new InvalidFileNameException("Filename must contain at least one letter before the extension"); // checked
+        }
+    }
+
+    public static String computeSHA256Hash(MultipartFile file) {
+        MessageDigest digest = borrowDigest();
+        byte[] buffer = borrowBuffer();
+        try (InputStream inputStream = file.getInputStream()) {
+            int bytesRead;
+
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+
+            return toHex(digest.digest());
+
+        } catch (IOException e) {
+            log.error("IOException while reading file: {}", e.getMessage());
+            throw new RuntimeException("Failed to read uploaded file", e);
+
+        } finally {
+            release(digest);
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+
+    public static String computeSHA256Hash(byte[] content) {
+        MessageDigest digest = borrowDigest();
+        try {
+            return toHex(digest.digest(content));
+        } finally {
+            release(digest);
+        }
+    }
+
+    // A multipart part's checksum, in the base64 form S3 expects in x-amz-checksum-sha256
+    public static String computeSHA256Base64(byte[] content, int length) {
+        MessageDigest digest = borrowDigest();
+        try {
+            digest.update(content, 0, length);
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } finally {
+            release(digest);
+        }
+    }
+
+    // For digests that outlive one call (e.g. fed by a DigestInputStream); cloning skips the provider lookup
+    public static MessageDigest newSha256Digest() {
+        try {
+            return (MessageDigest) SHA256_PROTOTYPE.clone();
+
+        } catch (CloneNotSupportedException e) {
+            return lookupSha256Digest();
+        }
+    }
+
+    private static MessageDigest lookupSha256Digest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Hash algorithm not found: {}", e.getMessage());
+            throw new HashAlgorithmNotFoundException("SHA-256 algorithm not available");
+        }
+    }
+
+    private static MessageDigest borrowDigest() {
+        MessageDigest digest = DIGEST_POOL.poll();
+        return digest != null ? digest : newSha256Digest();
+    }
+
+    private static void release(MessageDigest digest) {
+        digest.reset();
+        DIGEST_POOL.offer(digest);
+    }
+
+    private static byte[] borrowBuffer() {
+        byte[] buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : new byte[HASH_BUFFER_BYTES];
+    }
+
+    public static String toHex(byte[] hashBytes) {
+        return HEX.formatHex(hashBytes);
+    }
+
+    // S3 carries checksums base64-encoded; object keys carry the same digest hex-encoded
+    public static String sha256HexToBase64(String sha256Hex) {
+        return Base64.getEncoder().encodeToString(HEX.parseHex(sha256Hex));
+    }
+
+
+    public static boolean isSha256Hex(String value) {
+        return value != null && value.length() == 64 && value.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+
+    public static String encodeListCursor(String continuationToken) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(continuationToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeListCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+        } catch (IllegalArgumentException e) {
+            throw new InvalidListRequestException("Invalid list cursor");
+        }
+    }
+
+    // Reads X-Amz-Date + X-Amz-Expires from a SigV4 presigned URL without contacting S3
+    public static Optional<Instant> presignedUrlExpiration(String presignedUrl) {
+        String query = URI.create(presignedUrl).getRawQuery();
+        if (query == null) {
+            return Optional.empty();
+        }
+
+        String amzDate = null;
+        String amzExpires = null;
+        for (String param : query.split("&")) {
+            if (param.startsWith("X-Amz-Date=")) {
+                amzDate = param.substring("X-Amz-Date=".length());
+            } else if (param.startsWith("X-Amz-Expires=")) {
+                amzExpires = param.substring("X-Amz-Expires=".length());
+            }
+        }
+
+        if (amzDate == null || amzExpires == null) {
+            return Optional.empty();
+        }
+
+        try {
+            Instant signedAt = Instant.from(AMZ_DATE_FORMAT.parse(amzDate));
+            return Optional.of(signedAt.plusSeconds(Long.parseLong(amzExpires)));
+
+        } catch (DateTimeParseException | NumberFormatException e) {
+            log.debug("Unparseable presigned URL expiry. Date: {}, Expires: {}", amzDate, amzExpires);
+            return Optional.empty();
+        }
+    }
+
+    public static void checkPresignedUrlNotExpired(String presignedUrl) {
+        presignedUrlExpiration(presignedUrl).ifPresent(expiration -> {
+            if (!expiration.isAfter(Instant.now())) {
+                log.warn("Presigned URL has expired.");
+                throw new PresignedUrlExpiredException("Presigned URL Get expired Or Url Get Manipulated");
+            }
+        });
+    }
+
+    public static String expirationLabel(String presignedUrl) {
+        return presignedUrlExpiration(presignedUrl)
+                .map(expiration -> {
+                    long remainingSeconds = Math.max(0, Duration.between(Instant.now(), expiration).toSeconds());
+                    return (remainingSeconds + 59) / 60 + "Min";
+                })
+                .orElse("Unknown");
+    }
+
+    public static Map<String, String> extractFolderShaKeyAndObjName(String presignedUrl) {
+        return extractFolderShaKeyAndObjName(presignedUrl, null);
+    }
+
+    // A path-style URL (endpoint/bucket/key) starts with the bucket; pass it as pathStyleBucket to have it stripped
+    public static Map<String, String> extractFolderShaKeyAndObjName(String presignedUrl, String pathStyleBucket) {
+        URI uri = URI.create(presignedUrl);
+
+        String path = uri.getPath(); // e.g. /myBucket/646d4fdf4sdf45dv
+
+        // Remove leading slash
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+
+        if (pathStyleBucket != null && path.startsWith(pathStyleBucket + "/")) {
+            path = path.substring(pathStyleBucket.length() + 1);
+        }
+
+        // Split into folderName and shaKey
+        String[] parts = path.split("/", 2); // Split into folderName and shaKey
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid path format: " + path);
+        }
+
+        // Create the map to store folderName, shaKey, and objName
+        Map<String, String> result = new HashMap<>();
+        result.put("folderName", parts[0]);   // first part is folder
+        result.put("shaKey", parts[1]);       // second part is shaKey
+
+        // Construct objName by combining folderName and shaKey
+        result.put("objName", parts[0] + "/" + parts[1]);
+
+        return result;
+    }
+
+
+}
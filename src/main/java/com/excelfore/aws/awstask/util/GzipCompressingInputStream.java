@@ -0,0 +1,64 @@
+package com.excelfore.aws.awstask.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Reads another stream as gzip, compressing on the fly. Unlike {@link java.util.zip.GZIPOutputStream} it is
+ * pulled by the reader, so multipart uploads can cut compressed parts straight from it without buffering the
+ * whole result or draining an output stream on a second thread.
+ */
+public class GzipCompressingInputStream extends SequenceInputStream {
+
+    // Magic, deflate, no flags, no mtime, no extra flags, unknown OS
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    public GzipCompressingInputStream(InputStream in, int level) {
+        this(new CheckedInputStream(in, new CRC32()), new Deflater(level, true));
+    }
+
+    private GzipCompressingInputStream(CheckedInputStream source, Deflater deflater) {
+        super(members(source, deflater));
+    }
+
+    // The trailer needs the CRC and length of the whole input, so it is only built once the body is exhausted
+    private static Enumeration<InputStream> members(CheckedInputStream source, Deflater deflater) {
+        Iterator<Supplier<InputStream>> members = List.<Supplier<InputStream>>of(
+                () -> new ByteArrayInputStream(HEADER),
+                () -> new DeflaterInputStream(source, deflater),
+                () -> trailer(source, deflater)
+        ).iterator();
+
+        return new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return members.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return members.next().get();
+            }
+        };
+    }
+
+    private static InputStream trailer(CheckedInputStream source, Deflater deflater) {
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt((int) source.getChecksum().getValue())
+                .putInt((int) deflater.getBytesRead());
+        deflater.end();
+        return new ByteArrayInputStream(trailer.array());
+    }
+
+}
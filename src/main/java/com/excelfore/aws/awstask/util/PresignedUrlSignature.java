@@ -0,0 +1,183 @@
+package com.excelfore.aws.awstask.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checks SigV4 query-string signatures the way S3 does: the same access key, not expired, and a signature over
+ * the method, raw path, query and signed headers that matches. Presigned S3 URLs never sign the payload.
+ */
+public final class PresignedUrlSignature {
+
+    public enum Outcome { VALID, MALFORMED, UNKNOWN_ACCESS_KEY, EXPIRED, SIGNATURE_MISMATCH }
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String accessKey;
+    private final String secretKey;
+    private final Clock clock;
+
+    public PresignedUrlSignature(String accessKey, String secretKey, Clock clock) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.clock = clock;
+    }
+
+    // A URL as this service hands it out: only the host header is signed
+    public Outcome check(String method, String presignedUrl) {
+        URI uri = URI.create(presignedUrl);
+        return check(method, uri.getRawPath(), parseQuery(uri.getRawQuery()),
+                name -> "host".equals(name) ? List.of(uri.getRawAuthority()) : List.of());
+    }
+
+    public Outcome check(String method, String rawPath, List<Map.Entry<String, String>> queryParams,
+                         Function<String, List<String>> headerValues) {
+
+        Map<String, String> query = queryParams.stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first));
+
+        if (!ALGORITHM.equals(query.get("X-Amz-Algorithm")) || !query.containsKey("X-Amz-Signature")) {
+            return Outcome.MALFORMED;
+        }
+
+        // <access key>/<date>/<region>/<service>/aws4_request
+        String[] scope = query.getOrDefault("X-Amz-Credential", "").split("/");
+        if (scope.length != 5) {
+            return Outcome.MALFORMED;
+        }
+        if (!scope[0].equals(accessKey)) {
+            return Outcome.UNKNOWN_ACCESS_KEY;
+        }
+
+        String amzDate = query.getOrDefault("X-Amz-Date", "");
+        Instant signedAt;
+        long expiresSeconds;
+        try {
+            signedAt = LocalDateTime.parse(amzDate, AMZ_DATE_FORMAT).toInstant(ZoneOffset.UTC);
+            expiresSeconds = Long.parseLong(query.getOrDefault("X-Amz-Expires", ""));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Outcome.MALFORMED;
+        }
+        if (clock.instant().isAfter(signedAt.plusSeconds(expiresSeconds))) {
+            return Outcome.EXPIRED;
+        }
+
+        String signedHeaders = query.getOrDefault("X-Amz-SignedHeaders", "host");
+        String canonicalRequest = String.join("\n",
+                method,
+                rawPath,
+                canonicalQuery(queryParams),
+                canonicalHeaders(signedHeaders, headerValues),
+                signedHeaders,
+                query.getOrDefault("X-Amz-Content-Sha256", UNSIGNED_PAYLOAD));
+
+        String credentialScope = String.join("/", Arrays.copyOfRange(scope, 1, 5));
+        String stringToSign = String.join("\n",
+                ALGORITHM,
+                amzDate,
+                credentialScope,
+                HEX.formatHex(sha256(canonicalRequest)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), scope[1]);
+        for (int i = 2; i < scope.length; i++) {
+            signingKey = hmac(signingKey, scope[i]);
+        }
+        byte[] expected = hmac(signingKey, stringToSign);
+
+        byte[] actual;
+        try {
+            actual = HEX.parseHex(query.get("X-Amz-Signature"));
+        } catch (IllegalArgumentException e) {
+            actual = new byte[0];
+        }
+        return MessageDigest.isEqual(expected, actual) ? Outcome.VALID : Outcome.SIGNATURE_MISMATCH;
+    }
+
+    // Decoded name/value pairs in URL order; repeated names are kept, as they are all signed
+    public static List<Map.Entry<String, String>> parseQuery(String rawQuery) {
+        List<Map.Entry<String, String>> params = new ArrayList<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String param : rawQuery.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int equals = param.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? param : param.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(param.substring(equals + 1), StandardCharsets.UTF_8);
+            params.add(Map.entry(name, value));
+        }
+        return params;
+    }
+
+    // RFC 3986 unreserved characters stay as they are; everything else is percent-encoded, space as %20
+    public static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String canonicalQuery(List<Map.Entry<String, String>> queryParams) {
+        return queryParams.stream()
+                .filter(param -> !param.getKey().equals("X-Amz-Signature"))
+                .map(param -> Map.entry(encode(param.getKey()), encode(param.getValue())))
+                .sorted(Map.Entry.<String, String>comparingByKey().thenComparing(Map.Entry.comparingByValue()))
+                .map(param -> param.getKey() + "=" + param.getValue())
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String canonicalHeaders(String signedHeaders, Function<String, List<String>> headerValues) {
+        StringBuilder canonical = new StringBuilder();
+        for (String name : signedHeaders.split(";")) {
+            canonical.append(name).append(':')
+                    .append(headerValues.apply(name).stream()
+                            .map(value -> value.trim().replaceAll("\\s+", " "))
+                            .collect(Collectors.joining(",")))
+                    .append('\n');
+        }
+        return canonical.toString();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.excelfore.aws.awstask.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Hashes a download as it is read and fails the final read when the content does not match the expected
+ * SHA-256 (base64, as S3 reports it). The failure aborts the connection instead of ending the response
+ * normally. Every byte has already been written by then, so a client that trusts Content-Length alone can
+ * still see a complete corrupted body; only the abort, or a chunked response missing its last chunk, tells it otherwise.
+ */
+public class Sha256VerifyingInputStream extends FilterInputStream {
+
+    private final MessageDigest digest = FileUtil.newSha256Digest();
+    private final String expectedSha256Base64;
+    private boolean verified;
+
+    public Sha256VerifyingInputStream(InputStream in, String expectedSha256Base64) {
+        super(in);
+        this.expectedSha256Base64 = expectedSha256Base64;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            verify();
+        } else {
+            digest.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int bytesRead = super.read(buffer, offset, length);
+        if (bytesRead == -1) {
+            verify();
+        } else {
+            digest.update(buffer, offset, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes would never reach the digest
+        throw new IOException("skip is not supported on a verifying stream");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void verify() throws IOException {
+        if (verified) {
+            return;
+        }
+        verified = true;
+
+        String actual = Base64.getEncoder().encodeToString(digest.digest());
+        if (!actual.equals(expectedSha256Base64)) {
+            throw new IOException("SHA-256 mismatch on download. Expected: " + expectedSha256Base64 + ", Actual: " + actual);
+        }
+    }
+
+}
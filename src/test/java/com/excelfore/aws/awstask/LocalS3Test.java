@@ -0,0 +1,25 @@
+package com.excelfore.aws.awstask;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Boots the application against the in-process S3 stand-in. Every test class carrying it shares one context,
+ * so tests keep to keys of their own. Missing keys stay cached for a minute, so a HEAD made before a fault is
+ * injected into the stand-in is not repeated after it.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+		"aws.s3.head-cache.negative-ttl=1m",
+		"aws.s3.dedup-index.enabled=true",
+		"aws.s3.dedup-index.path=target/test-digests-${random.uuid}.idx"
+})
+@ActiveProfiles("local")
+public @interface LocalS3Test {
+}
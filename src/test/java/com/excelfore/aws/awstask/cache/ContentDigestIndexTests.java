@@ -0,0 +1,136 @@
+package com.excelfore.aws.awstask.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentDigestIndexTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void recordsAndRemovesDigests() {
+		ContentDigestIndex index = open(dir.resolve("digests.idx"), 16);
+		String first = digest("first");
+		String second = digest("second");
+
+		index.record(first);
+
+		assertThat(index.contains(first)).isTrue();
+		assertThat(index.contains(first.toUpperCase())).isTrue();
+		assertThat(index.contains(second)).isFalse();
+
+		index.remove(first);
+		assertThat(index.contains(first)).isFalse();
+		index.close();
+	}
+
+	@Test
+	void ignoresMalformedDigests() {
+		ContentDigestIndex index = open(dir.resolve("digests.idx"), 16);
+
+		index.record("not-a-digest");
+		index.record("z".repeat(64));
+
+		assertThat(index.contains("not-a-digest")).isFalse();
+		assertThat(index.contains("z".repeat(64))).isFalse();
+		assertThat(index.contains(null)).isFalse();
+		index.close();
+	}
+
+	@Test
+	void growsAndKeepsProbingPastRemovedSlots() {
+		ContentDigestIndex index = open(dir.resolve("digests.idx"), 16);
+		List<String> digests = digests(200);
+
+		digests.forEach(index::record);
+		// Tombstones must not end a probe, so every other digest stays reachable
+		for (int i = 0; i < digests.size(); i += 2) {
+			index.remove(digests.get(i));
+		}
+
+		for (int i = 0; i < digests.size(); i++) {
+			assertThat(index.contains(digests.get(i))).as("digest %d", i).isEqualTo(i % 2 == 1);
+		}
+		assertThat(ReflectionTestUtils.getField(index, "capacity")).isEqualTo(512);
+		assertThat(Files.exists(dir.resolve("digests.idx.resize"))).isFalse();
+		index.close();
+	}
+
+	@Test
+	void reopensWithTheRecordedDigests() {
+		Path path = dir.resolve("digests.idx");
+		List<String> digests = digests(100);
+
+		ContentDigestIndex index = open(path, 16);
+		digests.forEach(index::record);
+		index.remove(digests.get(0));
+		index.close();
+
+		ContentDigestIndex reopened = open(path, 16);
+
+		assertThat(reopened.contains(digests.get(0))).isFalse();
+		digests.subList(1, digests.size()).forEach(digest -> assertThat(reopened.contains(digest)).isTrue());
+		assertThat(ReflectionTestUtils.getField(reopened, "used")).isEqualTo(99);
+		reopened.close();
+	}
+
+	@Test
+	void replacesAnUnreadableFile() throws Exception {
+		Path path = dir.resolve("digests.idx");
+		Files.write(path, "not an index file".getBytes(StandardCharsets.UTF_8));
+
+		ContentDigestIndex index = open(path, 16);
+		index.record(digest("first"));
+
+		assertThat(index.contains(digest("first"))).isTrue();
+		assertThat(Files.size(path)).isEqualTo(16 + 16 * 33);
+		index.close();
+	}
+
+	@Test
+	void answersNothingWhenDisabled() {
+		ContentDigestIndex index = new ContentDigestIndex();
+		ReflectionTestUtils.setField(index, "enabled", false);
+		index.open();
+
+		index.record(digest("first"));
+
+		assertThat(index.contains(digest("first"))).isFalse();
+		index.close();
+	}
+
+	private static ContentDigestIndex open(Path path, int initialCapacity) {
+		ContentDigestIndex index = new ContentDigestIndex();
+		ReflectionTestUtils.setField(index, "enabled", true);
+		ReflectionTestUtils.setField(index, "path", path);
+		ReflectionTestUtils.setField(index, "initialCapacity", initialCapacity);
+		index.open();
+		return index;
+	}
+
+	private static List<String> digests(int count) {
+		return IntStream.range(0, count).mapToObj(i -> digest("content-" + i)).toList();
+	}
+
+	private static String digest(String content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+					.digest(content.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
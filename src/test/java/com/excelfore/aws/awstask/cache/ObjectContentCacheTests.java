@@ -0,0 +1,257 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.service.S3ServiceV2;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class ObjectContentCacheTests {
+
+	@TempDir
+	Path dir;
+
+	@Autowired
+	private ObjectContentCache objectContentCache;
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void missFillsTheCacheAndLaterReadsSkipTheSource() throws IOException {
+		ObjectContentCache cache = cache(10);
+		byte[] content = content(300 * 1024, 1);
+		String sha256Hex = FileUtil.computeSHA256Hash(content);
+		AtomicInteger fetches = new AtomicInteger();
+
+		try (InputStream miss = cache.open(sha256Hex, null, source(content, fetches))) {
+			assertThat(miss.readAllBytes()).isEqualTo(content);
+		}
+		try (InputStream hit = cache.open(sha256Hex, null, source(content, fetches))) {
+			assertThat(hit.readAllBytes()).isEqualTo(content);
+		}
+
+		assertThat(fetches).hasValue(1);
+		assertThat(cache.stats().getMisses()).isEqualTo(1);
+		assertThat(cache.stats().getHits()).isEqualTo(1);
+		assertThat(dir.resolve(sha256Hex)).hasBinaryContent(content);
+		cache.close();
+	}
+
+	@Test
+	void concurrentMissesFollowOneFill() throws Exception {
+		ObjectContentCache cache = cache(10);
+		byte[] content = content(512 * 1024, 2);
+		String sha256Hex = FileUtil.computeSHA256Hash(content);
+		AtomicInteger fetches = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		// The body stalls halfway, so every reader joins while the fill is still running
+		ObjectContentCache.Source stalling = () -> {
+			fetches.incrementAndGet();
+			return new StallingInputStream(content, content.length / 2, release);
+		};
+		InputStream first = cache.open(sha256Hex, null, stalling);
+
+		// Waiting readers on virtual threads must not pin their carriers
+		ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+		try {
+			List<Future<byte[]>> joined = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				joined.add(readers.submit(() -> {
+					try (InputStream reader = cache.open(sha256Hex, null, stalling)) {
+						return reader.readAllBytes();
+					}
+				}));
+			}
+			Thread.sleep(200);
+			release.countDown();
+
+			try (first) {
+				assertThat(first.readAllBytes()).isEqualTo(content);
+			}
+			for (Future<byte[]> reader : joined) {
+				assertThat(reader.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+			}
+		} finally {
+			readers.shutdownNow();
+		}
+
+		assertThat(fetches).hasValue(1);
+		cache.close();
+	}
+
+	@Test
+	void mismatchedBodyFailsTheReadAndIsNotKept() throws IOException {
+		ObjectContentCache cache = cache(10);
+		byte[] content = content(100 * 1024, 3);
+		String sha256Hex = FileUtil.computeSHA256Hash(content(100 * 1024, 4));
+		AtomicInteger fetches = new AtomicInteger();
+
+		try (InputStream reader = cache.open(sha256Hex, null, source(content, fetches))) {
+			assertThatThrownBy(reader::readAllBytes).isInstanceOf(IOException.class);
+		}
+
+		assertThat(cache.stats().getEntries()).isZero();
+		assertThat(dir.resolve(sha256Hex)).doesNotExist();
+		cache.open(sha256Hex, null, source(content, fetches)).close();
+		assertThat(fetches).hasValue(2);
+		cache.close();
+	}
+
+	@Test
+	void evictionSkipsPinnedEntries() throws Exception {
+		ObjectContentCache cache = cache(1);
+		byte[] pinned = content(400 * 1024, 5);
+		byte[] unpinned = content(400 * 1024, 6);
+		byte[] newest = content(400 * 1024, 7);
+		AtomicInteger fetches = new AtomicInteger();
+
+		InputStream reader = fill(cache, pinned, fetches);
+		fill(cache, unpinned, fetches).close();
+		// Past max-size-mb, so the least recently used unpinned entry goes
+		fill(cache, newest, fetches).close();
+
+		awaitEvictions(cache, 1);
+		try (reader) {
+			cache.open(FileUtil.computeSHA256Hash(pinned), null, source(pinned, fetches)).close();
+			assertThat(fetches).hasValue(3);
+		}
+		assertThat(dir.resolve(FileUtil.computeSHA256Hash(unpinned))).doesNotExist();
+		assertThat(dir.resolve(FileUtil.computeSHA256Hash(newest))).exists();
+		assertThat(cache.stats().getSizeBytes()).isEqualTo(pinned.length + newest.length);
+		cache.close();
+	}
+
+	@Test
+	void downloadIsServedFromTheCacheOnceFilled() throws IOException {
+		byte[] content = content(64 * 1024, 400);
+		MockMultipartFile file = new MockMultipartFile("file", "cached.bin", "application/octet-stream", content);
+		String key = s3ServiceV2.uploadFileWithPresign(file, s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl());
+		String url = s3ServiceV2.getValidPresignedUrlForDownload(key).getUrl();
+
+		Object directory = ReflectionTestUtils.getField(objectContentCache, "directory");
+		ReflectionTestUtils.setField(objectContentCache, "directory", dir);
+		ReflectionTestUtils.setField(objectContentCache, "enabled", true);
+		try {
+			objectContentCache.load();
+			try (InputStream miss = s3ServiceV2.downloadFileWithPresign(url, DownloadConditions.none()).getBody()) {
+				assertThat(miss.readAllBytes()).isEqualTo(content);
+			}
+
+			// Every request is answered 503 SlowDown, so only the cache can serve this
+			ReflectionTestUtils.setField(localS3Server, "throttleRate", 1.0);
+			try (InputStream hit = s3ServiceV2.downloadFileWithPresign(url, DownloadConditions.none()).getBody()) {
+				assertThat(hit.readAllBytes()).isEqualTo(content);
+			} finally {
+				ReflectionTestUtils.setField(localS3Server, "throttleRate", 0.0);
+			}
+		} finally {
+			ReflectionTestUtils.setField(objectContentCache, "enabled", false);
+			ReflectionTestUtils.setField(objectContentCache, "directory", directory);
+		}
+	}
+
+	private ObjectContentCache cache(int maxSizeMb) {
+		ObjectContentCache cache = new ObjectContentCache();
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "directory", dir);
+		ReflectionTestUtils.setField(cache, "maxSizeMb", maxSizeMb);
+		ReflectionTestUtils.setField(cache, "maxObjectMb", maxSizeMb);
+		cache.load();
+		return cache;
+	}
+
+	// Returns the stream still open, read to its end; LRU order needs distinct access times
+	private static InputStream fill(ObjectContentCache cache, byte[] content, AtomicInteger fetches) throws Exception {
+		InputStream reader = cache.open(FileUtil.computeSHA256Hash(content), null, source(content, fetches));
+		assertThat(reader.readAllBytes()).isEqualTo(content);
+		Thread.sleep(20);
+		return reader;
+	}
+
+	private static void awaitEvictions(ObjectContentCache cache, long evictions) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (cache.stats().getEvictions() < evictions && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(cache.stats().getEvictions()).isEqualTo(evictions);
+	}
+
+	private static ObjectContentCache.Source source(byte[] content, AtomicInteger fetches) {
+		return () -> {
+			fetches.incrementAndGet();
+			return new ByteArrayInputStream(content);
+		};
+	}
+
+	private static byte[] content(int size, long seed) {
+		byte[] content = new byte[size];
+		new Random(seed).nextBytes(content);
+		return content;
+	}
+
+	private static final class StallingInputStream extends InputStream {
+		private final ByteArrayInputStream delegate;
+		private final int stallAt;
+		private final CountDownLatch release;
+		private int position;
+
+		private StallingInputStream(byte[] content, int stallAt, CountDownLatch release) {
+			this.delegate = new ByteArrayInputStream(content);
+			this.stallAt = stallAt;
+			this.release = release;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (position >= stallAt) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				}
+			}
+			int read = delegate.read(buffer, offset, position < stallAt ? Math.min(length, stallAt - position) : length);
+			if (read > 0) {
+				position += read;
+			}
+			return read;
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Each index is built here rather than taken from the context, which leaves the key index disabled
+@LocalS3Test
+class ObjectKeyIndexTests {
+
+	@Autowired
+	private S3Client s3Client;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Value("${aws.s3.bucket}")
+	private String bucket;
+
+	@Test
+	void incrementalRefreshListsOnlyPastTheLastIndexedKey() {
+		localS3Server.put(tailKey(), new byte[] {1});
+		ObjectKeyIndex index = index(Integer.MAX_VALUE);
+		index.refresh();
+
+		String tailKey = tailKey();
+		String middleKey = "index/" + UUID.randomUUID();
+		localS3Server.put(tailKey, new byte[] {1});
+		localS3Server.put(middleKey, new byte[] {1});
+		index.refresh();
+
+		assertThat(index.containsKey(tailKey)).isTrue();
+		assertThat(index.containsKey(middleKey)).isFalse();
+
+		// The next full listing catches keys written elsewhere in the range
+		ReflectionTestUtils.setField(index, "fullRefreshInterval", Duration.ZERO);
+		index.refresh();
+
+		assertThat(index.containsKey(middleKey)).isTrue();
+	}
+
+	@Test
+	void ownUploadsAndDeletesAreFoldedIntoTheSnapshot() {
+		String prefix = "index/" + UUID.randomUUID() + "/";
+		localS3Server.put(prefix + "deleted.txt", new byte[] {1});
+		localS3Server.put(prefix + "kept.txt", new byte[] {1});
+		ObjectKeyIndex index = index(Integer.MAX_VALUE);
+		index.refresh();
+
+		index.recordAdded(prefix + "added.txt");
+		index.recordRemoved(prefix + "deleted.txt");
+		assertThat(index.find(Optional.of(prefix), Optional.empty()))
+				.contains(List.of(prefix + "added.txt", prefix + "kept.txt"));
+
+		index.refresh();
+
+		assertThat(pending(index, "addedKeys")).isEmpty();
+		assertThat(pending(index, "removedKeys")).isEmpty();
+		assertThat(index.find(Optional.of(prefix), Optional.empty()))
+				.contains(List.of(prefix + "added.txt", prefix + "kept.txt"));
+		assertThat(index.find(Optional.empty(), Optional.of(prefix.substring(6) + "added.txt")))
+				.contains(List.of(prefix + "added.txt"));
+		assertThat(index.containsKey(prefix + "deleted.txt")).isFalse();
+	}
+
+	@Test
+	void switchesOffOnceTheBucketOutgrowsMaxKeys() {
+		ObjectKeyIndex index = index(bucketSize() + 1);
+		index.refresh();
+		assertThat(index.find(Optional.empty(), Optional.empty())).isPresent();
+
+		localS3Server.put(tailKey(), new byte[] {1});
+		localS3Server.put(tailKey(), new byte[] {1});
+		index.refresh();
+
+		assertThat(index.find(Optional.empty(), Optional.empty())).isEmpty();
+		index.recordAdded("index/ignored");
+		assertThat(pending(index, "addedKeys")).isEmpty();
+
+		// Stays off rather than relisting on every tick
+		ReflectionTestUtils.setField(index, "maxKeys", Integer.MAX_VALUE);
+		index.refresh();
+		assertThat(index.find(Optional.empty(), Optional.empty())).isEmpty();
+	}
+
+	@Test
+	void stopsAnsweringPastItsTtl() {
+		ObjectKeyIndex index = index(Integer.MAX_VALUE);
+		index.refresh();
+		assertThat(index.find(Optional.empty(), Optional.empty())).isPresent();
+
+		ReflectionTestUtils.setField(index, "ttl", Duration.ZERO);
+
+		assertThat(index.find(Optional.empty(), Optional.empty())).isEmpty();
+	}
+
+	private ObjectKeyIndex index(int maxKeys) {
+		ObjectKeyIndex index = new ObjectKeyIndex(s3Client);
+		ReflectionTestUtils.setField(index, "bucket", bucket);
+		ReflectionTestUtils.setField(index, "enabled", true);
+		ReflectionTestUtils.setField(index, "ttl", Duration.ofMinutes(5));
+		ReflectionTestUtils.setField(index, "maxKeys", maxKeys);
+		ReflectionTestUtils.setField(index, "fullRefreshInterval", Duration.ofHours(1));
+		return index;
+	}
+
+	// Sorts after every key written so far, including earlier tail keys
+	private static String tailKey() {
+		return String.format("~index/%020d", System.nanoTime());
+	}
+
+	private int bucketSize() {
+		return (int) s3Client.listObjectsV2Paginator(request -> request.bucket(bucket)).contents().stream().count();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Long> pending(ObjectKeyIndex index, String field) {
+		return (Map<String, Long>) ReflectionTestUtils.getField(index, field);
+	}
+
+}
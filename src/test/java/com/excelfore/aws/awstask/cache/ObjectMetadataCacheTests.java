@@ -0,0 +1,180 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class ObjectMetadataCacheTests {
+
+	private static final Optional<HeadObjectResponse> FOUND = Optional.of(HeadObjectResponse.builder().contentLength(1L).build());
+
+	@Autowired
+	private CommonAWSOp commonAWSOp;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void concurrentMissesShareOneHead() throws Exception {
+		// Caching is off, so only coalescing can keep the late callers from loading again
+		ObjectMetadataCache cache = cache(false, Duration.ofMinutes(5), Duration.ofSeconds(5), 100);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<Optional<HeadObjectResponse>> loader = () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return FOUND;
+		};
+
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Optional<HeadObjectResponse>>> results = new ArrayList<>();
+			results.add(callers.submit(() -> cache.get("key", loader)));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			for (int i = 0; i < 7; i++) {
+				results.add(callers.submit(() -> cache.get("key", loader)));
+			}
+			Thread.sleep(200);
+			release.countDown();
+
+			for (Future<Optional<HeadObjectResponse>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(FOUND);
+			}
+			assertThat(loads).hasValue(1);
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void concurrentAsyncMissesShareOneHead() {
+		ObjectMetadataCache cache = cache(false, Duration.ofMinutes(5), Duration.ofSeconds(5), 100);
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Optional<HeadObjectResponse>> head = new CompletableFuture<>();
+
+		CompletableFuture<Optional<HeadObjectResponse>> first = cache.getAsync("key", () -> {
+			loads.incrementAndGet();
+			return head;
+		});
+		CompletableFuture<Optional<HeadObjectResponse>> second = cache.getAsync("key", () -> {
+			loads.incrementAndGet();
+			return head;
+		});
+		head.complete(FOUND);
+
+		assertThat(first.join()).isSameAs(FOUND);
+		assertThat(second.join()).isSameAs(FOUND);
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void failuresAreSharedButNotCached() {
+		ObjectMetadataCache cache = cache(true, Duration.ofMinutes(5), Duration.ofSeconds(5), 100);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertThatThrownBy(() -> cache.get("key", () -> {
+			loads.incrementAndGet();
+			throw new IllegalStateException("S3 unavailable");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(cache.get("key", () -> {
+			loads.incrementAndGet();
+			return FOUND;
+		})).isSameAs(FOUND);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void notFoundLivesForTheNegativeTtlOnly() throws InterruptedException {
+		ObjectMetadataCache cache = cache(true, Duration.ofMinutes(5), Duration.ofMillis(50), 100);
+		AtomicInteger loads = new AtomicInteger();
+		Supplier<Optional<HeadObjectResponse>> missing = () -> {
+			loads.incrementAndGet();
+			return Optional.empty();
+		};
+		Supplier<Optional<HeadObjectResponse>> found = () -> {
+			loads.incrementAndGet();
+			return FOUND;
+		};
+
+		cache.get("missing", missing);
+		cache.get("missing", missing);
+		cache.get("found", found);
+		assertThat(loads).hasValue(2);
+
+		Thread.sleep(100);
+		cache.get("missing", missing);
+		cache.get("found", found);
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	void staysWithinMaxEntries() {
+		ObjectMetadataCache cache = cache(true, Duration.ofMinutes(5), Duration.ofSeconds(5), 10);
+
+		for (int i = 0; i < 50; i++) {
+			cache.get("key-" + i, () -> FOUND);
+		}
+
+		assertThat((Map<?, ?>) ReflectionTestUtils.getField(cache, "entries")).hasSizeLessThanOrEqualTo(10);
+	}
+
+	@Test
+	void uploadThroughTheServiceClearsACachedMiss() {
+		String key = "head/" + UUID.randomUUID();
+
+		assertThat(commonAWSOp.doesObjectExists(key)).isFalse();
+		localS3Server.put(key, new byte[] {1});
+		// Written behind the service's back, so the cached miss still answers
+		assertThat(commonAWSOp.doesObjectExists(key)).isFalse();
+
+		commonAWSOp.recordUploaded(key);
+		assertThat(commonAWSOp.doesObjectExists(key)).isTrue();
+		assertThat(commonAWSOp.headObject(key)).get().extracting(HeadObjectResponse::contentLength).isEqualTo(1L);
+	}
+
+	private static ObjectMetadataCache cache(boolean enabled, Duration positiveTtl, Duration negativeTtl, int maxEntries) {
+		ObjectMetadataCache cache = new ObjectMetadataCache();
+		ReflectionTestUtils.setField(cache, "enabled", enabled);
+		ReflectionTestUtils.setField(cache, "positiveTtl", positiveTtl);
+		ReflectionTestUtils.setField(cache, "negativeTtl", negativeTtl);
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		return cache;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
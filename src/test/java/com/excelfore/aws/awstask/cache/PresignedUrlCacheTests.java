@@ -0,0 +1,136 @@
+package com.excelfore.aws.awstask.cache;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.dto.DownloadConditions;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.service.S3ServiceV2;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class PresignedUrlCacheTests {
+
+	@Autowired
+	private S3Presigner s3Presigner;
+
+	@Autowired
+	private CommonAWSOp commonAWSOp;
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Value("${aws.s3.bucket}")
+	private String bucket;
+
+	@Test
+	void reusesAUrlUntilTooLittleOfItsLifetimeIsLeft() {
+		PresignedUrlCache cache = cache(true, Duration.ofMinutes(2), 100);
+		AtomicInteger signings = new AtomicInteger();
+		Supplier<PresignedRequest> signer = signer("key", Duration.ofMinutes(5), signings);
+
+		PresignedRequest first = cache.get("key", "GET", null, signer);
+		assertThat(cache.get("key", "GET", null, signer)).isSameAs(first);
+		assertThat(signings).hasValue(1);
+
+		// Five minutes of lifetime no longer covers the ten a caller must be left with
+		ReflectionTestUtils.setField(cache, "minRemaining", Duration.ofMinutes(10));
+		assertThat(cache.get("key", "GET", null, signer)).isNotSameAs(first);
+		assertThat(signings).hasValue(2);
+	}
+
+	@Test
+	void keepsOperationsAndDispositionsApart() {
+		PresignedUrlCache cache = cache(true, Duration.ofMinutes(2), 100);
+		AtomicInteger signings = new AtomicInteger();
+		Supplier<PresignedRequest> signer = signer("key", Duration.ofMinutes(5), signings);
+
+		cache.get("key", "GET", null, signer);
+		cache.get("key", "GET", "attachment; filename=\"key\"", signer);
+		cache.get("key", "PUT", null, signer);
+		cache.get("other", "GET", null, signer);
+		assertThat(signings).hasValue(4);
+
+		cache.get("key", "GET", "attachment; filename=\"key\"", signer);
+		assertThat(signings).hasValue(4);
+	}
+
+	@Test
+	void signsEveryTimeWhenDisabled() {
+		PresignedUrlCache cache = cache(false, Duration.ofMinutes(2), 100);
+		AtomicInteger signings = new AtomicInteger();
+		Supplier<PresignedRequest> signer = signer("key", Duration.ofMinutes(5), signings);
+
+		cache.get("key", "GET", null, signer);
+		cache.get("key", "GET", null, signer);
+
+		assertThat(signings).hasValue(2);
+	}
+
+	@Test
+	void staysWithinMaxEntries() {
+		PresignedUrlCache cache = cache(true, Duration.ofMinutes(2), 10);
+		AtomicInteger signings = new AtomicInteger();
+
+		for (int i = 0; i < 50; i++) {
+			cache.get("key-" + i, "GET", null, signer("key-" + i, Duration.ofMinutes(5), signings));
+		}
+
+		assertThat((Map<?, ?>) ReflectionTestUtils.getField(cache, "entries")).hasSizeLessThanOrEqualTo(10);
+	}
+
+	@Test
+	void expiredUrlIsRejectedBeforeAnyRequest() {
+		String key = "presign/" + UUID.randomUUID();
+		localS3Server.put(key, new byte[] {1});
+		assertThat(commonAWSOp.doesObjectExists(key)).isTrue();
+		String url = commonAWSOp.generatePresignedUrl(key, false)
+				.replaceFirst("X-Amz-Date=\\d{8}T\\d{6}Z", "X-Amz-Date=20200101T000000Z");
+
+		// Throttling every request shows the rejection happens before the GET is sent
+		ReflectionTestUtils.setField(localS3Server, "throttleRate", 1.0);
+		try {
+			assertThatThrownBy(() -> s3ServiceV2.downloadFileWithPresign(url, DownloadConditions.none()))
+					.isInstanceOf(PresignedUrlExpiredException.class);
+		} finally {
+			ReflectionTestUtils.setField(localS3Server, "throttleRate", 0.0);
+		}
+	}
+
+	private Supplier<PresignedRequest> signer(String key, Duration lifetime, AtomicInteger signings) {
+		return () -> {
+			signings.incrementAndGet();
+			return s3Presigner.presignGetObject(request -> request
+					.getObjectRequest(get -> get.bucket(bucket).key(key))
+					.signatureDuration(lifetime));
+		};
+	}
+
+	private static PresignedUrlCache cache(boolean enabled, Duration minRemaining, int maxEntries) {
+		PresignedUrlCache cache = new PresignedUrlCache();
+		ReflectionTestUtils.setField(cache, "enabled", enabled);
+		ReflectionTestUtils.setField(cache, "minRemaining", minRemaining);
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		return cache;
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.excelfore.aws.awstask.common;
+
+import com.excelfore.aws.awstask.exception.FileDownloadException;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RangedDownloaderTests {
+
+	private static final int RANGE_SIZE = 1024 * 1024;
+	private static final int PARALLELISM = 3;
+	private static final String ETAG = "\"0123456789abcdef\"";
+
+	private final byte[] content = new byte[5 * RANGE_SIZE + 123];
+	private final Map<Long, AtomicInteger> attempts = new ConcurrentHashMap<>();
+	private final Set<String> ifMatch = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	// Given a range start and its attempt number, a status to fail with, -1 for a truncated 206 or 0 to serve it
+	private volatile BiFunction<Long, Integer, Integer> fault = (from, attempt) -> 0;
+	private volatile long slowRangeMillis;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private ExecutorService transferExecutor;
+	private HttpClient httpClient;
+	private RangedDownloader downloader;
+
+	@BeforeEach
+	void start() throws IOException {
+		new Random(7).nextBytes(content);
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::serveRange);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		transferExecutor = Executors.newVirtualThreadPerTaskExecutor();
+		httpClient = HttpClient.newHttpClient();
+		downloader = new RangedDownloader(httpClient, transferExecutor);
+		ReflectionTestUtils.setField(downloader, "enabled", true);
+		ReflectionTestUtils.setField(downloader, "thresholdMb", 1);
+		ReflectionTestUtils.setField(downloader, "rangeSizeMb", 1);
+		ReflectionTestUtils.setField(downloader, "parallelism", PARALLELISM);
+		ReflectionTestUtils.setField(downloader, "maxAttempts", 3);
+		ReflectionTestUtils.setField(downloader, "requestTimeout", Duration.ofSeconds(30));
+	}
+
+	@AfterEach
+	void stop() {
+		httpClient.close();
+		transferExecutor.shutdownNow();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	void reassemblesRangesInOrderWhenLaterOnesFinishFirst() throws IOException {
+		slowRangeMillis = 300;
+
+		assertThat(download()).isEqualTo(content);
+		assertThat(attempts.keySet()).containsExactlyInAnyOrder(0L, 1L * RANGE_SIZE, 2L * RANGE_SIZE,
+				3L * RANGE_SIZE, 4L * RANGE_SIZE, 5L * RANGE_SIZE);
+		assertThat(maxInFlight.get()).isLessThanOrEqualTo(PARALLELISM);
+		assertThat(ifMatch).containsExactly(ETAG);
+	}
+
+	@Test
+	void retriesFailedAndTruncatedRanges() throws IOException {
+		fault = (from, attempt) -> {
+			if (from == RANGE_SIZE && attempt == 1) {
+				return 503;
+			}
+			if (from == 3L * RANGE_SIZE && attempt < 3) {
+				return -1;
+			}
+			return 0;
+		};
+
+		assertThat(download()).isEqualTo(content);
+		assertThat(attempts.get((long) RANGE_SIZE)).hasValue(2);
+		assertThat(attempts.get(3L * RANGE_SIZE)).hasValue(3);
+		assertThat(attempts.get(0L)).hasValue(1);
+	}
+
+	@Test
+	void failsOnceARangeRunsOutOfAttempts() {
+		fault = (from, attempt) -> from == 2L * RANGE_SIZE ? 500 : 0;
+
+		assertThatThrownBy(this::download)
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Status: 500");
+		assertThat(attempts.get(2L * RANGE_SIZE)).hasValue(3);
+	}
+
+	@Test
+	void doesNotRetryAChangedObject() {
+		fault = (from, attempt) -> from == RANGE_SIZE ? 412 : 0;
+
+		assertThatThrownBy(this::download).isInstanceOf(FileDownloadException.class);
+		assertThat(attempts.get((long) RANGE_SIZE)).hasValue(1);
+	}
+
+	@Test
+	void doesNotRetryARejectedUrl() {
+		fault = (from, attempt) -> 403;
+
+		assertThatThrownBy(this::download).isInstanceOf(PresignedUrlExpiredException.class);
+		assertThat(attempts.get(0L)).hasValue(1);
+	}
+
+	private byte[] download() throws IOException {
+		String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/object";
+		assertThat(downloader.shouldSplit(content.length)).isTrue();
+		try (InputStream in = downloader.openStream(url, content.length, ETAG)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private void serveRange(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			int running = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(running, Math::max);
+			try {
+				String[] range = exchange.getRequestHeaders().getFirst("Range").substring("bytes=".length()).split("-");
+				long from = Long.parseLong(range[0]);
+				int to = Integer.parseInt(range[1]);
+				int attempt = attempts.computeIfAbsent(from, start -> new AtomicInteger()).incrementAndGet();
+				ifMatch.add(exchange.getRequestHeaders().getFirst("If-Match"));
+
+				if (from == 0 && slowRangeMillis > 0) {
+					Thread.sleep(slowRangeMillis);
+				}
+
+				int status = fault.apply(from, attempt);
+				if (status > 0) {
+					exchange.sendResponseHeaders(status, -1);
+					return;
+				}
+
+				byte[] body = Arrays.copyOfRange(content, (int) from, status < 0 ? (int) from + (to - (int) from) / 2 : to + 1);
+				exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+				exchange.sendResponseHeaders(206, body.length);
+				exchange.getResponseBody().write(body);
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.excelfore.aws.awstask.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTests {
+
+	private static final long RATE = 1024 * 1024;
+
+	@Test
+	void burstWithinOneSecondOfRateDoesNotWait() throws InterruptedIOException {
+		TokenBucket bucket = new TokenBucket(RATE);
+
+		long started = System.nanoTime();
+		bucket.acquire(RATE / 2);
+		bucket.acquire(RATE / 2);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(100));
+	}
+
+	@Test
+	void deficitIsSleptOffAtTheRate() throws InterruptedIOException {
+		TokenBucket bucket = new TokenBucket(RATE);
+		bucket.acquire(RATE);
+
+		long started = System.nanoTime();
+		bucket.acquire(RATE / 4);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - started))
+				.isGreaterThanOrEqualTo(Duration.ofMillis(200))
+				.isLessThan(Duration.ofSeconds(2));
+	}
+
+	@Test
+	void waitersQueueBehindEarlierReservations() throws InterruptedIOException {
+		TokenBucket bucket = new TokenBucket(RATE);
+		bucket.acquire(RATE);
+
+		// Each reservation is taken at once, so the second caller also pays for the first one's deficit
+		long started = System.nanoTime();
+		bucket.acquire(RATE / 4);
+		bucket.acquire(RATE / 4);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(450));
+	}
+
+	@Test
+	void idleTimeRefillsOnlyUpToOneSecond() throws Exception {
+		TokenBucket bucket = new TokenBucket(RATE);
+		Thread.sleep(300);
+
+		long started = System.nanoTime();
+		bucket.acquire(RATE + RATE / 4);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+	}
+
+	@Test
+	void interruptedWaitFailsAndKeepsTheInterrupt() throws InterruptedIOException {
+		TokenBucket bucket = new TokenBucket(RATE);
+		bucket.acquire(RATE);
+
+		Thread.currentThread().interrupt();
+		try {
+			assertThatThrownBy(() -> bucket.acquire(RATE)).isInstanceOf(InterruptedIOException.class);
+			assertThat(Thread.currentThread().isInterrupted()).isTrue();
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+}
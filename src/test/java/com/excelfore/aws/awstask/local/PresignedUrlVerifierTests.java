@@ -0,0 +1,138 @@
+package com.excelfore.aws.awstask.local;
+
+import com.excelfore.aws.awstask.util.PresignedUrlSignature;
+
+import com.sun.net.httpserver.Headers;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PresignedUrlVerifierTests {
+
+	private static final String ACCESS_KEY = "local";
+	private static final String SECRET_KEY = "local-secret";
+	private static final String ENDPOINT = "http://localhost:9000";
+
+	private static S3Presigner presigner;
+
+	@BeforeAll
+	static void createPresigner() {
+		presigner = S3Presigner.builder()
+				.region(Region.US_EAST_1)
+				.endpointOverride(URI.create(ENDPOINT))
+				.serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+				.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(ACCESS_KEY, SECRET_KEY)))
+				.build();
+	}
+
+	@AfterAll
+	static void closePresigner() {
+		presigner.close();
+	}
+
+	@Test
+	void acceptsAnUnmodifiedUrl() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+
+		assertThatCode(() -> verify(verifier(Clock.systemUTC()), "GET", url)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void rejectsAnExpiredUrl() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+		Clock later = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(11));
+
+		assertRejected(verifier(later), "GET", url, 403, "AccessDenied");
+	}
+
+	@Test
+	void rejectsAnotherKeyOrMethod() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+
+		assertRejected(verifier(Clock.systemUTC()), "GET", url.replace("/object?", "/other?"), 403, "SignatureDoesNotMatch");
+		assertRejected(verifier(Clock.systemUTC()), "PUT", url, 403, "SignatureDoesNotMatch");
+	}
+
+	@Test
+	void rejectsAnExtendedExpiry() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+
+		assertRejected(verifier(Clock.systemUTC()), "GET", url.replace("X-Amz-Expires=600", "X-Amz-Expires=6000"),
+				403, "SignatureDoesNotMatch");
+	}
+
+	@Test
+	void rejectsATamperedSignature() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+		String signature = PresignedUrlSignature.parseQuery(URI.create(url).getRawQuery()).stream()
+				.filter(param -> param.getKey().equals("X-Amz-Signature"))
+				.findFirst()
+				.orElseThrow()
+				.getValue();
+		String flipped = (signature.charAt(0) == '0' ? '1' : '0') + signature.substring(1);
+
+		assertRejected(verifier(Clock.systemUTC()), "GET", url.replace(signature, flipped), 403, "SignatureDoesNotMatch");
+		assertRejected(verifier(Clock.systemUTC()), "GET", url.replace(signature, "not-hex"), 403, "SignatureDoesNotMatch");
+	}
+
+	@Test
+	void rejectsOtherCredentials() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+
+		assertRejected(new PresignedUrlVerifier("other", SECRET_KEY, Clock.systemUTC()), "GET", url, 403, "InvalidAccessKeyId");
+		assertRejected(new PresignedUrlVerifier(ACCESS_KEY, "other-secret", Clock.systemUTC()), "GET", url, 403,
+				"SignatureDoesNotMatch");
+	}
+
+	@Test
+	void rejectsAnIncompleteUrl() {
+		String url = presignGet("myBucket/object", Duration.ofMinutes(10));
+
+		assertRejected(verifier(Clock.systemUTC()), "GET", url.replace("X-Amz-Algorithm=", "X-Amz-Algo="), 400,
+				"AuthorizationQueryParametersError");
+	}
+
+	private static String presignGet(String key, Duration expiry) {
+		return presigner.presignGetObject(request -> request
+						.signatureDuration(expiry)
+						.getObjectRequest(get -> get.bucket("local-bucket").key(key)))
+				.url()
+				.toString();
+	}
+
+	private static PresignedUrlVerifier verifier(Clock clock) {
+		return new PresignedUrlVerifier(ACCESS_KEY, SECRET_KEY, clock);
+	}
+
+	private static void verify(PresignedUrlVerifier verifier, String method, String url) {
+		URI uri = URI.create(url);
+		Headers headers = new Headers();
+		headers.add("Host", uri.getRawAuthority());
+		verifier.verify(method, uri.getRawPath(), PresignedUrlSignature.parseQuery(uri.getRawQuery()), headers);
+	}
+
+	private static void assertRejected(PresignedUrlVerifier verifier, String method, String url, int status, String code) {
+		assertThatThrownBy(() -> verify(verifier, method, url))
+				.as("rejection of %s %s", method, url)
+				.isInstanceOfSatisfying(LocalS3Error.class, error -> {
+					assertThat(error.status()).isEqualTo(status);
+					assertThat(error.code()).isEqualTo(code);
+				});
+	}
+
+}
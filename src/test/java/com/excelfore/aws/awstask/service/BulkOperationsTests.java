@@ -0,0 +1,143 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.dto.BulkKeyResult;
+import com.excelfore.aws.awstask.exception.InvalidBatchRequestException;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class BulkOperationsTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private CommonAWSOp commonAWSOp;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void bulkExistsAnswersEveryRequestedKey() {
+		String prefix = FOLDER_NAME + UUID.randomUUID() + "-";
+		List<String> stored = keys(prefix, 30);
+		stored.forEach(key -> localS3Server.put(key, new byte[] {1}));
+		localS3Server.put("other/" + prefix, new byte[] {1});
+
+		List<String> requested = new ArrayList<>(stored.subList(0, 20));
+		requested.add(stored.get(3));
+		requested.add(stored.get(3));
+		requested.add(prefix + "missing");
+		requested.add(prefix + "missing");
+		requested.add(prefix);
+		requested.add("other/" + prefix);
+		requested.add("other/missing");
+		Collections.shuffle(requested, new Random(3));
+
+		List<BulkKeyResult> expected = requested.stream()
+				.map(key -> new BulkKeyResult(key, stored.contains(key) || key.equals("other/" + prefix)
+						? BulkKeyResult.Status.EXISTS : BulkKeyResult.Status.MISSING))
+				.toList();
+
+		assertThat(checkObjectsExist(requested)).containsExactlyInAnyOrderElementsOf(expected);
+	}
+
+	@Test
+	void bulkExistsFallsBackToHeadForSparseKeys() {
+		// More objects than one listing page, with only a few of them requested
+		String prefix = FOLDER_NAME + UUID.randomUUID() + "-";
+		List<String> stored = keys(prefix, 2500);
+		stored.forEach(key -> localS3Server.put(key, new byte[] {1}));
+
+		List<String> requested = List.of(stored.get(0), stored.get(1200), prefix + "1200x", stored.get(2499),
+				stored.get(2499), prefix + "zzzz");
+
+		List<BulkKeyResult> expected = requested.stream()
+				.map(key -> new BulkKeyResult(key, stored.contains(key)
+						? BulkKeyResult.Status.EXISTS : BulkKeyResult.Status.MISSING))
+				.toList();
+
+		assertThat(checkObjectsExist(requested)).containsExactlyInAnyOrderElementsOf(expected);
+	}
+
+	@Test
+	void bulkDeleteRemovesEachKeyOnceAcrossBatches() {
+		// More keys than one DeleteObjects call takes
+		String prefix = "bulk-delete/" + UUID.randomUUID() + "-";
+		List<String> stored = keys(prefix, 1200);
+		stored.forEach(key -> localS3Server.put(key, new byte[] {1}));
+		assertThat(commonAWSOp.doesObjectExists(stored.get(0))).isTrue();
+
+		List<String> requested = new ArrayList<>(stored);
+		requested.add(stored.get(0));
+
+		List<BulkKeyResult> expected = stored.stream()
+				.map(key -> new BulkKeyResult(key, BulkKeyResult.Status.DELETED))
+				.toList();
+
+		assertThat(deleteObjects(requested)).containsExactlyInAnyOrderElementsOf(expected);
+		assertThat(checkObjectsExist(List.of(stored.get(0), stored.get(1199))))
+				.extracting(BulkKeyResult::getStatus)
+				.containsOnly(BulkKeyResult.Status.MISSING);
+	}
+
+	@Test
+	void bulkDeleteReportsAFailedBatchPerKey() {
+		String prefix = "bulk-delete/" + UUID.randomUUID() + "-";
+		List<String> stored = keys(prefix, 5);
+		stored.forEach(key -> localS3Server.put(key, new byte[] {1}));
+
+		// Every request is answered 503 SlowDown
+		ReflectionTestUtils.setField(localS3Server, "throttleRate", 1.0);
+		List<BulkKeyResult> results;
+		try {
+			results = deleteObjects(stored);
+		} finally {
+			ReflectionTestUtils.setField(localS3Server, "throttleRate", 0.0);
+		}
+
+		assertThat(results).extracting(BulkKeyResult::getKey).containsExactlyInAnyOrderElementsOf(stored);
+		assertThat(results).extracting(BulkKeyResult::getStatus).containsOnly(BulkKeyResult.Status.FAILED);
+		assertThat(commonAWSOp.doesObjectExists(stored.get(0))).isTrue();
+	}
+
+	@Test
+	void rejectsAnEmptyKeyList() {
+		assertThatThrownBy(() -> s3ServiceV2.validateBulkSize(List.of()))
+				.isInstanceOf(InvalidBatchRequestException.class);
+	}
+
+	private List<BulkKeyResult> checkObjectsExist(List<String> keys) {
+		List<BulkKeyResult> results = Collections.synchronizedList(new ArrayList<>());
+		s3ServiceV2.checkObjectsExist(keys, results::add);
+		return results;
+	}
+
+	private List<BulkKeyResult> deleteObjects(List<String> keys) {
+		List<BulkKeyResult> results = Collections.synchronizedList(new ArrayList<>());
+		s3ServiceV2.deleteObjects(keys, results::add);
+		return results;
+	}
+
+	private static List<String> keys(String prefix, int count) {
+		return IntStream.range(0, count).mapToObj(i -> prefix + String.format("%04d", i)).toList();
+	}
+
+}
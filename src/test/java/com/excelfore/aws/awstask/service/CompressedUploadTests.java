@@ -0,0 +1,114 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.common.ContentCompression;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Compressed uploads go up with the service's credentials, through putObject or, past the part size, multipart
+@LocalS3Test
+class CompressedUploadTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private ContentCompression contentCompression;
+
+	@Autowired
+	private S3Client s3Client;
+
+	@Value("${aws.s3.bucket}")
+	private String bucket;
+
+	@BeforeEach
+	void enableCompression() {
+		ReflectionTestUtils.setField(contentCompression, "enabled", true);
+	}
+
+	@AfterEach
+	void disableCompression() {
+		ReflectionTestUtils.setField(contentCompression, "enabled", false);
+	}
+
+	@Test
+	void storesTextGzipped() throws IOException {
+		MockMultipartFile file = text(256 * 1024, "stored");
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+
+		assertThat(s3ServiceV2.uploadFileWithPresign(file, s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl()))
+				.isEqualTo(key);
+
+		ResponseBytes<GetObjectResponse> stored = s3Client.getObjectAsBytes(request -> request.bucket(bucket).key(key));
+		assertThat(stored.response().contentEncoding()).isEqualTo("gzip");
+		assertThat(stored.asByteArray().length).isLessThan((int) file.getSize());
+		try (GZIPInputStream decoded = new GZIPInputStream(new ByteArrayInputStream(stored.asByteArray()))) {
+			assertThat(decoded.readAllBytes()).isEqualTo(file.getBytes());
+		}
+	}
+
+	@Test
+	void rejectsAUrlThatWasNeverSigned() {
+		MockMultipartFile file = text(256 * 1024, "forged");
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(file, "http://localhost/" + key))
+				.isInstanceOf(PresignedUrlExpiredException.class);
+		assertThat(exists(key)).isFalse();
+	}
+
+	@Test
+	void rejectsAUrlSignedForAnotherKeyBeforeAMultipartUpload() {
+		MockMultipartFile signed = text(9 * 1024 * 1024, "signed");
+		MockMultipartFile file = text(9 * 1024 * 1024, "other");
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(signed).getUrl()
+				.replace(FileUtil.computeSHA256Hash(signed), FileUtil.computeSHA256Hash(file));
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(file, url))
+				.isInstanceOf(PresignedUrlExpiredException.class);
+		assertThat(exists(key)).isFalse();
+		assertThat(s3Client.listMultipartUploads(request -> request.bucket(bucket).prefix(key)).uploads()).isEmpty();
+	}
+
+	private static MockMultipartFile text(int size, String seed) {
+		StringBuilder content = new StringBuilder(size + 64);
+		for (int line = 0; content.length() < size; line++) {
+			content.append(seed).append(" line ").append(line).append(": the quick brown fox jumps over the lazy dog\n");
+		}
+		return new MockMultipartFile("file", seed + ".txt", "text/plain", content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private boolean exists(String key) {
+		try {
+			s3Client.headObject(request -> request.bucket(bucket).key(key));
+			return true;
+		} catch (NoSuchKeyException e) {
+			return false;
+		}
+	}
+
+}
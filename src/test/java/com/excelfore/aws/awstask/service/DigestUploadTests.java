@@ -0,0 +1,112 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.cache.ContentDigestIndex;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.exception.EmptyFileException;
+import com.excelfore.aws.awstask.exception.FileAlreadyExistsException;
+import com.excelfore.aws.awstask.exception.FileTooLargeException;
+import com.excelfore.aws.awstask.exception.FileUploadException;
+import com.excelfore.aws.awstask.exception.InvalidFileNameException;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static com.excelfore.aws.awstask.service.MultipartUploadTests.file;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// URLs here come from the X-Content-SHA256 route, which names the key from the client's digest without seeing the file.
+// The negative HEAD TTL outlasts each test, so a throttled upload fails on its PUT rather than on the existence check
+@LocalS3Test
+class DigestUploadTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private CommonAWSOp commonAWSOp;
+
+	@Autowired
+	private ContentDigestIndex contentDigestIndex;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void duplicateDigestIsAnsweredWithoutAnUpload() {
+		MockMultipartFile file = file(16 * 1024, 200);
+		String sha256Hex = FileUtil.computeSHA256Hash(file);
+
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(sha256Hex.toUpperCase()).getUrl();
+		assertThat(s3ServiceV2.uploadFileWithPresign(file, url)).isEqualTo(FOLDER_NAME + sha256Hex);
+
+		assertThat(contentDigestIndex.contains(sha256Hex)).isTrue();
+		assertThatThrownBy(() -> s3ServiceV2.getValidPresignedUrlForUpload(sha256Hex))
+				.isInstanceOf(FileAlreadyExistsException.class);
+	}
+
+	@Test
+	void uploadEnforcesTheFileRulesTheDigestRouteSkipped() {
+		byte[] content = new byte[2 * 1024 * 1024];
+		new Random(201).nextBytes(content);
+		MockMultipartFile unnamed = new MockMultipartFile("file", "1234.bin", "application/octet-stream", content);
+		MockMultipartFile empty = new MockMultipartFile("file", "empty.bin", "application/octet-stream", new byte[0]);
+		MockMultipartFile large = new MockMultipartFile("file", "large.bin", "application/octet-stream", content);
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(unnamed, digestUrl(content)))
+				.isInstanceOf(InvalidFileNameException.class);
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(empty, digestUrl(new byte[0])))
+				.isInstanceOf(EmptyFileException.class);
+
+		ReflectionTestUtils.setField(s3ServiceV2, "maxFileSizeMb", 1);
+		try {
+			assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(large, digestUrl(content)))
+					.isInstanceOf(FileTooLargeException.class);
+		} finally {
+			ReflectionTestUtils.setField(s3ServiceV2, "maxFileSizeMb", 5120);
+		}
+
+		assertThat(commonAWSOp.doesObjectExists(FOLDER_NAME + FileUtil.computeSHA256Hash(content))).isFalse();
+	}
+
+	@Test
+	void failedUploadIsNotIndexed() {
+		byte[] content = new byte[64 * 1024];
+		new Random(11).nextBytes(content);
+		MockMultipartFile file = new MockMultipartFile("file", "failed.bin", "application/octet-stream", content);
+		String sha256Hex = FileUtil.computeSHA256Hash(content);
+		String url = digestUrl(content);
+
+		// Every request is answered 503 SlowDown
+		ReflectionTestUtils.setField(localS3Server, "throttleRate", 1.0);
+		try {
+			assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(file, url))
+					.isInstanceOf(FileUploadException.class)
+					.hasMessageContaining("503");
+		} finally {
+			ReflectionTestUtils.setField(localS3Server, "throttleRate", 0.0);
+		}
+
+		assertThat(contentDigestIndex.contains(sha256Hex)).isFalse();
+		assertThat(commonAWSOp.doesObjectExists(FOLDER_NAME + sha256Hex)).isFalse();
+
+		// The same URL can be used again once S3 recovers
+		assertThat(s3ServiceV2.uploadFileWithPresign(file, url)).isEqualTo(FOLDER_NAME + sha256Hex);
+		assertThat(contentDigestIndex.contains(sha256Hex)).isTrue();
+		assertThat(commonAWSOp.doesObjectExists(FOLDER_NAME + sha256Hex)).isTrue();
+	}
+
+	private String digestUrl(byte[] content) {
+		return s3ServiceV2.getValidPresignedUrlForUpload(FileUtil.computeSHA256Hash(content)).getUrl();
+	}
+
+}
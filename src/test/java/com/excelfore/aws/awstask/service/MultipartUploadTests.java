@@ -0,0 +1,157 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.common.CommonAWSOp;
+import com.excelfore.aws.awstask.exception.HashMismatchException;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Files over aws.s3.multipart.threshold-mb (5MB) go up as multipart uploads made with the service's credentials
+@LocalS3Test
+class MultipartUploadTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private CommonAWSOp commonAWSOp;
+
+	@Autowired
+	private S3Client s3Client;
+
+	@Value("${aws.s3.bucket}")
+	private String bucket;
+
+	@Test
+	void uploadsALargeFileInParts() {
+		MockMultipartFile file = file(12 * 1024 * 1024 + 5, 1);
+		String sha256Hex = FileUtil.computeSHA256Hash(file);
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl();
+
+		assertThat(s3ServiceV2.uploadFileWithPresign(file, url)).isEqualTo(FOLDER_NAME + sha256Hex);
+
+		assertThat(stored(FOLDER_NAME + sha256Hex)).isEqualTo(contentOf(file));
+		assertThat(pendingUploads(FOLDER_NAME + sha256Hex)).isZero();
+	}
+
+	@Test
+	void acceptsAUrlWithASignedChecksum() {
+		MockMultipartFile file = file(6 * 1024 * 1024, 5);
+		String sha256Hex = FileUtil.computeSHA256Hash(file);
+
+		ReflectionTestUtils.setField(commonAWSOp, "checksumEnabled", true);
+		try {
+			String url = s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl();
+			assertThat(url).contains("x-amz-checksum-sha256");
+
+			assertThat(s3ServiceV2.uploadFileWithPresign(file, url)).isEqualTo(FOLDER_NAME + sha256Hex);
+		} finally {
+			ReflectionTestUtils.setField(commonAWSOp, "checksumEnabled", false);
+		}
+
+		assertThat(stored(FOLDER_NAME + sha256Hex)).isEqualTo(contentOf(file));
+	}
+
+	@Test
+	void rejectsAUrlThatWasNeverSigned() {
+		MockMultipartFile file = file(6 * 1024 * 1024, 2);
+		String sha256Hex = FileUtil.computeSHA256Hash(file);
+		String forged = "http://localhost/" + FOLDER_NAME + sha256Hex;
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(file, forged))
+				.isInstanceOf(PresignedUrlExpiredException.class);
+
+		assertThat(exists(FOLDER_NAME + sha256Hex)).isFalse();
+		assertThat(pendingUploads(FOLDER_NAME + sha256Hex)).isZero();
+	}
+
+	@Test
+	void rejectsAUrlSignedForAnotherKey() {
+		MockMultipartFile signed = file(6 * 1024 * 1024, 3);
+		MockMultipartFile file = file(6 * 1024 * 1024, 4);
+		String sha256Hex = FileUtil.computeSHA256Hash(file);
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(signed).getUrl()
+				.replace(FileUtil.computeSHA256Hash(signed), sha256Hex);
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(file, url))
+				.isInstanceOf(PresignedUrlExpiredException.class);
+
+		assertThat(exists(FOLDER_NAME + sha256Hex)).isFalse();
+		assertThat(pendingUploads(FOLDER_NAME + sha256Hex)).isZero();
+	}
+
+	@Test
+	void abortsWhenThePartsDoNotMatchTheKey() {
+		MockMultipartFile signed = file(12 * 1024 * 1024, 6);
+		MockMultipartFile other = file(12 * 1024 * 1024, 7);
+		String sha256Hex = FileUtil.computeSHA256Hash(signed);
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(signed).getUrl();
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(other, url))
+				.isInstanceOf(HashMismatchException.class);
+
+		assertThat(exists(FOLDER_NAME + sha256Hex)).isFalse();
+		assertThat(pendingUploads(FOLDER_NAME + sha256Hex)).isZero();
+	}
+
+	@Test
+	void rejectsASmallFileThatDoesNotMatchTheKey() {
+		MockMultipartFile signed = file(64 * 1024, 8);
+		MockMultipartFile other = file(64 * 1024, 9);
+		String sha256Hex = FileUtil.computeSHA256Hash(signed);
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(signed).getUrl();
+
+		assertThatThrownBy(() -> s3ServiceV2.uploadFileWithPresign(other, url))
+				.isInstanceOf(HashMismatchException.class);
+
+		assertThat(exists(FOLDER_NAME + sha256Hex)).isFalse();
+	}
+
+	static MockMultipartFile file(int size, long seed) {
+		byte[] content = new byte[size];
+		new Random(seed).nextBytes(content);
+		return new MockMultipartFile("file", "upload-" + seed + ".bin", "application/octet-stream", content);
+	}
+
+	private static byte[] contentOf(MockMultipartFile file) {
+		try {
+			return file.getBytes();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] stored(String key) {
+		return s3Client.getObjectAsBytes(request -> request.bucket(bucket).key(key)).asByteArray();
+	}
+
+	private boolean exists(String key) {
+		try {
+			s3Client.headObject(request -> request.bucket(bucket).key(key));
+			return true;
+		} catch (NoSuchKeyException e) {
+			return false;
+		}
+	}
+
+	private int pendingUploads(String key) {
+		return s3Client.listMultipartUploads(request -> request.bucket(bucket).prefix(key)).uploads().size();
+	}
+
+}
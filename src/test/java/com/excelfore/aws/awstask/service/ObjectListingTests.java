@@ -0,0 +1,96 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.dto.ObjectKeyPage;
+import com.excelfore.aws.awstask.exception.InvalidListRequestException;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class ObjectListingTests {
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void cursorWalksEveryKeyOnce() {
+		String prefix = "listing/" + UUID.randomUUID() + "/";
+		List<String> stored = store(prefix, 25, "");
+
+		List<String> listed = new ArrayList<>();
+		Optional<String> cursor = Optional.empty();
+		int pages = 0;
+		do {
+			ObjectKeyPage page = s3ServiceV2.listObjectKeyPage(Optional.of(prefix), Optional.empty(), 7, cursor);
+			assertThat(page.getKeys()).hasSizeLessThanOrEqualTo(7);
+			assertThat(page.isTruncated()).isEqualTo(page.getNextCursor() != null);
+			listed.addAll(page.getKeys());
+			cursor = Optional.ofNullable(page.getNextCursor());
+			pages++;
+		} while (cursor.isPresent());
+
+		assertThat(listed).containsExactlyElementsOf(stored);
+		assertThat(pages).isEqualTo(4);
+	}
+
+	@Test
+	void suffixFilterAppliesWithinEachPage() {
+		String prefix = "listing/" + UUID.randomUUID() + "/";
+		List<String> text = store(prefix + "a-", 6, ".txt");
+		store(prefix + "b-", 6, ".bin");
+
+		ObjectKeyPage first = s3ServiceV2.listObjectKeyPage(Optional.of(prefix), Optional.of(".txt"), 8, Optional.empty());
+		ObjectKeyPage second = s3ServiceV2.listObjectKeyPage(Optional.of(prefix), Optional.of(".txt"), 8,
+				Optional.of(first.getNextCursor()));
+
+		assertThat(first.getKeys()).containsExactlyElementsOf(text);
+		assertThat(first.isTruncated()).isTrue();
+		assertThat(second.getKeys()).isEmpty();
+		assertThat(second.isTruncated()).isFalse();
+	}
+
+	@Test
+	void streamFollowsEveryListingPage() {
+		String prefix = "listing/" + UUID.randomUUID() + "/";
+		List<String> stored = store(prefix, 2100, "");
+
+		try (Stream<String> keys = s3ServiceV2.streamObjectKeyNames(Optional.of(prefix), Optional.empty())) {
+			assertThat(keys).containsExactlyElementsOf(stored);
+		}
+	}
+
+	@Test
+	void rejectsABadCursorOrPageSize() {
+		assertThatThrownBy(() -> s3ServiceV2.listObjectKeyPage(Optional.empty(), Optional.empty(), 10,
+				Optional.of("not base64!")))
+				.isInstanceOf(InvalidListRequestException.class);
+		assertThatThrownBy(() -> s3ServiceV2.listObjectKeyPage(Optional.empty(), Optional.empty(), 0, Optional.empty()))
+				.isInstanceOf(InvalidListRequestException.class);
+		assertThatThrownBy(() -> s3ServiceV2.listObjectKeyPage(Optional.empty(), Optional.empty(), 1001, Optional.empty()))
+				.isInstanceOf(InvalidListRequestException.class);
+	}
+
+	private List<String> store(String prefix, int count, String suffix) {
+		List<String> keys = IntStream.range(0, count)
+				.mapToObj(i -> prefix + String.format("%04d", i) + suffix)
+				.toList();
+		keys.forEach(key -> localS3Server.put(key, new byte[] {1}));
+		return keys;
+	}
+
+}
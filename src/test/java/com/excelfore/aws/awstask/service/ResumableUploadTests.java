@@ -0,0 +1,179 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.dto.UploadSessionStatus;
+import com.excelfore.aws.awstask.exception.HashMismatchException;
+import com.excelfore.aws.awstask.exception.InvalidUploadPartException;
+import com.excelfore.aws.awstask.exception.PresignedUrlExpiredException;
+import com.excelfore.aws.awstask.exception.UploadSessionNotFoundException;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static com.excelfore.aws.awstask.service.MultipartUploadTests.file;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Parts are aws.s3.multipart.part-size-mb (8MB) each, the last one holding the remainder
+@LocalS3Test
+class ResumableUploadTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+	private static final int PART_SIZE = 8 * 1024 * 1024;
+
+	@Autowired
+	private ResumableUploadService resumableUploadService;
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private S3Client s3Client;
+
+	@Value("${aws.s3.bucket}")
+	private String bucket;
+
+	@Test
+	void resumesFromNextPartAndCompletes() throws Exception {
+		MockMultipartFile file = file(PART_SIZE + 1024, 300);
+		byte[] content = file.getBytes();
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(content);
+
+		UploadSessionStatus started = start(file);
+		String sessionId = started.getSessionId();
+		assertThat(started.getKey()).isEqualTo(key);
+		assertThat(started.getTotalParts()).isEqualTo(2);
+		assertThat(started.getNextPart()).isEqualTo(1);
+
+		assertThat(uploadPart(sessionId, 1, content).getNextPart()).isEqualTo(2);
+		// A client that lost the response retries the part; it is acknowledged, not sent again
+		assertThat(uploadPart(sessionId, 1, content).getReceivedParts()).isEqualTo(1);
+		assertThat(resumableUploadService.getStatus(sessionId).getNextPart()).isEqualTo(2);
+
+		UploadSessionStatus finished = uploadPart(sessionId, 2, content);
+		assertThat(finished.getReceivedParts()).isEqualTo(2);
+		assertThat(finished.getNextPart()).isNull();
+
+		assertThat(resumableUploadService.complete(sessionId)).isEqualTo(key);
+		assertThat(s3Client.getObjectAsBytes(request -> request.bucket(bucket).key(key)).asByteArray()).isEqualTo(content);
+		assertThat(pendingUploads(key)).isZero();
+		assertThatThrownBy(() -> resumableUploadService.getStatus(sessionId))
+				.isInstanceOf(UploadSessionNotFoundException.class);
+	}
+
+	@Test
+	void rejectsPartsOutOfOrderOrOfTheWrongSize() throws Exception {
+		MockMultipartFile file = file(PART_SIZE + 1024, 301);
+		byte[] content = file.getBytes();
+		String sessionId = start(file).getSessionId();
+
+		assertThatThrownBy(() -> uploadPart(sessionId, 2, content))
+				.isInstanceOf(InvalidUploadPartException.class);
+		assertThatThrownBy(() -> resumableUploadService.uploadPart(sessionId, 1,
+				new ByteArrayInputStream(content, 0, 1024), 1024))
+				.isInstanceOf(InvalidUploadPartException.class);
+		assertThatThrownBy(() -> resumableUploadService.complete(sessionId))
+				.isInstanceOf(InvalidUploadPartException.class);
+
+		assertThat(resumableUploadService.getStatus(sessionId).getNextPart()).isEqualTo(1);
+		resumableUploadService.abort(sessionId);
+	}
+
+	@Test
+	void contentThatDoesNotMatchTheKeyIsNeverCompleted() throws Exception {
+		MockMultipartFile signed = file(PART_SIZE + 1024, 302);
+		byte[] other = file(PART_SIZE + 1024, 303).getBytes();
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(signed);
+		String sessionId = start(signed).getSessionId();
+
+		uploadPart(sessionId, 1, other);
+		uploadPart(sessionId, 2, other);
+
+		assertThatThrownBy(() -> resumableUploadService.complete(sessionId))
+				.isInstanceOf(HashMismatchException.class);
+		assertThat(exists(key)).isFalse();
+		assertThat(pendingUploads(key)).isZero();
+	}
+
+	@Test
+	void abortDropsTheSessionAndItsParts() throws Exception {
+		MockMultipartFile file = file(PART_SIZE + 1024, 304);
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+		String sessionId = start(file).getSessionId();
+		uploadPart(sessionId, 1, file.getBytes());
+
+		resumableUploadService.abort(sessionId);
+
+		assertThat(pendingUploads(key)).isZero();
+		assertThatThrownBy(() -> resumableUploadService.abort(sessionId))
+				.isInstanceOf(UploadSessionNotFoundException.class);
+		assertThatThrownBy(() -> uploadPart(sessionId, 2, file.getBytes()))
+				.isInstanceOf(UploadSessionNotFoundException.class);
+	}
+
+	@Test
+	void rejectsAUrlThisServiceDidNotSign() {
+		MockMultipartFile file = file(PART_SIZE + 1024, 305);
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+
+		assertThatThrownBy(() -> resumableUploadService.startSession("http://localhost/" + key, file.getSize(), null))
+				.isInstanceOf(PresignedUrlExpiredException.class);
+		assertThat(pendingUploads(key)).isZero();
+	}
+
+	@Test
+	void sweepAbortsSessionsPastTheirTtl() throws Exception {
+		MockMultipartFile file = file(PART_SIZE + 1024, 306);
+		String key = FOLDER_NAME + FileUtil.computeSHA256Hash(file);
+		String sessionId = start(file).getSessionId();
+		uploadPart(sessionId, 1, file.getBytes());
+
+		ReflectionTestUtils.setField(resumableUploadService, "sessionTtl", Duration.ZERO);
+		try {
+			Thread.sleep(5);
+			resumableUploadService.collectStaleUploads();
+		} finally {
+			ReflectionTestUtils.setField(resumableUploadService, "sessionTtl", Duration.ofHours(24));
+		}
+
+		assertThat(pendingUploads(key)).isZero();
+		assertThatThrownBy(() -> resumableUploadService.getStatus(sessionId))
+				.isInstanceOf(UploadSessionNotFoundException.class);
+	}
+
+	private UploadSessionStatus start(MockMultipartFile file) {
+		String url = s3ServiceV2.getValidPresignedUrlForUpload(file).getUrl();
+		return resumableUploadService.startSession(url, file.getSize(), file.getContentType());
+	}
+
+	private UploadSessionStatus uploadPart(String sessionId, int partNumber, byte[] content) {
+		byte[] part = Arrays.copyOfRange(content, (partNumber - 1) * PART_SIZE,
+				Math.min(content.length, partNumber * PART_SIZE));
+		return resumableUploadService.uploadPart(sessionId, partNumber, new ByteArrayInputStream(part), part.length);
+	}
+
+	private boolean exists(String key) {
+		try {
+			s3Client.headObject(request -> request.bucket(bucket).key(key));
+			return true;
+		} catch (NoSuchKeyException e) {
+			return false;
+		}
+	}
+
+	private int pendingUploads(String key) {
+		return s3Client.listMultipartUploads(request -> request.bucket(bucket).prefix(key)).uploads().size();
+	}
+
+}
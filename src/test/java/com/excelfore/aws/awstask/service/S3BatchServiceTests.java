@@ -0,0 +1,112 @@
+package com.excelfore.aws.awstask.service;
+
+import com.excelfore.aws.awstask.LocalS3Test;
+import com.excelfore.aws.awstask.dto.BatchItemResult;
+import com.excelfore.aws.awstask.dto.PresignedUrlResponse;
+import com.excelfore.aws.awstask.exception.FileAlreadyExistsException;
+import com.excelfore.aws.awstask.exception.HashMismatchException;
+import com.excelfore.aws.awstask.exception.InvalidBatchRequestException;
+import com.excelfore.aws.awstask.local.LocalS3Server;
+import com.excelfore.aws.awstask.util.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.excelfore.aws.awstask.service.MultipartUploadTests.file;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@LocalS3Test
+class S3BatchServiceTests {
+
+	private static final String FOLDER_NAME = "myBucket/";
+
+	@Autowired
+	private S3BatchService s3BatchService;
+
+	@Autowired
+	private S3ServiceV2 s3ServiceV2;
+
+	@Autowired
+	private LocalS3Server localS3Server;
+
+	@Test
+	void uploadsEveryFileInOrder() {
+		List<MultipartFile> files = IntStream.range(0, 12)
+				.<MultipartFile>mapToObj(i -> file(4 * 1024, 100 + i))
+				.toList();
+
+		List<BatchItemResult<String>> results = s3BatchService.uploadFiles(files, null);
+
+		assertThat(results).hasSize(files.size());
+		for (int i = 0; i < files.size(); i++) {
+			assertThat(results.get(i).getName()).isEqualTo(files.get(i).getOriginalFilename());
+			assertThat(results.get(i).getError()).isNull();
+			assertThat(results.get(i).getResult()).isEqualTo(FOLDER_NAME + FileUtil.computeSHA256Hash(files.get(i)));
+		}
+	}
+
+	@Test
+	void oneBadItemDoesNotFailTheOthers() {
+		MockMultipartFile first = file(4 * 1024, 120);
+		MockMultipartFile second = file(4 * 1024, 121);
+		MockMultipartFile third = file(4 * 1024, 122);
+		// Signed for content nobody uploads, so the second file cannot match its key
+		String wrongUrl = s3ServiceV2.getValidPresignedUrlForUpload(file(4 * 1024, 123)).getUrl();
+
+		List<BatchItemResult<String>> results = s3BatchService.uploadFiles(List.of(first, second, third), List.of(
+				s3ServiceV2.getValidPresignedUrlForUpload(first).getUrl(),
+				wrongUrl,
+				s3ServiceV2.getValidPresignedUrlForUpload(third).getUrl()));
+
+		assertThat(results.get(0).getResult()).isEqualTo(FOLDER_NAME + FileUtil.computeSHA256Hash(first));
+		assertThat(results.get(1).getResult()).isNull();
+		assertThat(results.get(1).getError()).isEqualTo(HashMismatchException.class.getSimpleName());
+		assertThat(results.get(2).getResult()).isEqualTo(FOLDER_NAME + FileUtil.computeSHA256Hash(third));
+	}
+
+	@Test
+	void presignsDownloadsOnlyForStoredObjects() {
+		String stored = "batch/" + UUID.randomUUID();
+		String missing = "batch/" + UUID.randomUUID();
+		localS3Server.put(stored, new byte[] {1});
+
+		List<BatchItemResult<PresignedUrlResponse>> results =
+				s3BatchService.getValidPresignedUrlsForDownload(List.of(missing, stored));
+
+		assertThat(results).extracting(BatchItemResult::getName).containsExactly(missing, stored);
+		assertThat(results.get(0).getError()).isEqualTo(FileAlreadyExistsException.class.getSimpleName());
+		assertThat(results.get(1).getResult().getType()).isEqualTo("Download");
+		assertThat(results.get(1).getResult().getUrl()).contains(stored);
+	}
+
+	@Test
+	void presignsUploadsOnlyForNewContent() {
+		MockMultipartFile uploaded = file(4 * 1024, 130);
+		MockMultipartFile fresh = file(4 * 1024, 131);
+		s3ServiceV2.uploadFileWithPresign(uploaded, s3ServiceV2.getValidPresignedUrlForUpload(uploaded).getUrl());
+
+		List<BatchItemResult<PresignedUrlResponse>> results =
+				s3BatchService.getValidPresignedUrlsForUpload(List.of(uploaded, fresh));
+
+		assertThat(results.get(0).getError()).isEqualTo(FileAlreadyExistsException.class.getSimpleName());
+		assertThat(results.get(1).getResult().getUrl()).contains(FileUtil.computeSHA256Hash(fresh));
+	}
+
+	@Test
+	void rejectsAnEmptyBatchOrMismatchedUrls() {
+		List<MultipartFile> files = List.of(file(1024, 140), file(1024, 141));
+
+		assertThatThrownBy(() -> s3BatchService.uploadFiles(List.of(), null))
+				.isInstanceOf(InvalidBatchRequestException.class);
+		assertThatThrownBy(() -> s3BatchService.uploadFiles(files, List.of("http://localhost/only-one")))
+				.isInstanceOf(InvalidBatchRequestException.class);
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.excelfore.aws.awstask.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileUtilTests {
+
+	private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+	private static final String QUERY = "?X-Amz-Date=20260101T000000Z&X-Amz-Expires=300";
+
+	@Test
+	void splitsAVirtualHostedUrlIntoFolderAndDigest() {
+		Map<String, String> parsed = FileUtil.extractFolderShaKeyAndObjName(
+				"https://bucket.s3.us-east-1.amazonaws.com/myBucket/" + SHA256 + QUERY);
+
+		assertThat(parsed).containsEntry("folderName", "myBucket")
+				.containsEntry("shaKey", SHA256)
+				.containsEntry("objName", "myBucket/" + SHA256);
+	}
+
+	@Test
+	void stripsTheBucketOfAPathStyleUrl() {
+		Map<String, String> parsed = FileUtil.extractFolderShaKeyAndObjName(
+				"http://127.0.0.1:9000/bucket/myBucket/" + SHA256 + QUERY, "bucket");
+
+		assertThat(parsed).containsEntry("objName", "myBucket/" + SHA256);
+	}
+
+	@Test
+	void keepsTheBaselineSplitWhenTheBucketDoesNotLead() {
+		// The folder happens to be named like another bucket; only the configured one is stripped
+		assertThat(FileUtil.extractFolderShaKeyAndObjName(
+				"https://bucket.s3.us-east-1.amazonaws.com/myBucket/" + SHA256 + QUERY, "bucket"))
+				.containsEntry("objName", "myBucket/" + SHA256);
+		assertThat(FileUtil.extractFolderShaKeyAndObjName(
+				"https://bucket.s3.us-east-1.amazonaws.com/myBucket/nested/" + SHA256 + QUERY))
+				.containsEntry("folderName", "myBucket")
+				.containsEntry("shaKey", "nested/" + SHA256);
+	}
+
+	@Test
+	void rejectsAPathWithoutAFolder() {
+		assertThatThrownBy(() -> FileUtil.extractFolderShaKeyAndObjName("https://bucket.s3.amazonaws.com/" + SHA256))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageStartingWith("Invalid path format");
+		assertThatThrownBy(() -> FileUtil.extractFolderShaKeyAndObjName("http://127.0.0.1:9000/bucket/" + SHA256, "bucket"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageStartingWith("Invalid path format");
+	}
+
+}
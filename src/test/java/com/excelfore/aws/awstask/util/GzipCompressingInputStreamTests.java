@@ -0,0 +1,72 @@
+package com.excelfore.aws.awstask.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipCompressingInputStreamTests {
+
+	@Test
+	void roundTripsCompressibleContent() throws IOException {
+		byte[] content = "{\"key\":\"value\",\"count\":42}\n".repeat(20_000).getBytes(StandardCharsets.UTF_8);
+
+		byte[] compressed = compress(content, Deflater.DEFAULT_COMPRESSION);
+
+		assertThat(compressed.length).isLessThan(content.length / 10);
+		assertThat(decode(compressed)).isEqualTo(content);
+	}
+
+	@Test
+	void roundTripsIncompressibleContent() throws IOException {
+		byte[] content = new byte[3 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+
+		assertThat(decode(compress(content, Deflater.BEST_SPEED))).isEqualTo(content);
+		assertThat(decode(compress(content, Deflater.BEST_COMPRESSION))).isEqualTo(content);
+	}
+
+	@Test
+	void roundTripsEmptyContent() throws IOException {
+		byte[] compressed = compress(new byte[0], Deflater.DEFAULT_COMPRESSION);
+
+		assertThat(compressed).startsWith(0x1f, 0x8b);
+		assertThat(decode(compressed)).isEmpty();
+	}
+
+	@Test
+	void singleByteReadsMatchBulkReads() throws IOException {
+		byte[] content = "abcdefghij".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream singleBytes = new ByteArrayOutputStream();
+		try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(content), 6)) {
+			int b;
+			while ((b = in.read()) != -1) {
+				singleBytes.write(b);
+			}
+		}
+
+		assertThat(singleBytes.toByteArray()).isEqualTo(compress(content, 6));
+		assertThat(decode(singleBytes.toByteArray())).isEqualTo(content);
+	}
+
+	private static byte[] compress(byte[] content, int level) throws IOException {
+		try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(content), level)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static byte[] decode(byte[] compressed) throws IOException {
+		try (InputStream in = ContentCoding.decode(new ByteArrayInputStream(compressed), ContentCoding.GZIP)) {
+			return in.readAllBytes();
+		}
+	}
+
+}